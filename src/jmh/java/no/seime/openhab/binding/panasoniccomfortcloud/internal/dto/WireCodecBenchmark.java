@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.dto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
+
+/**
+ * Decoding of the recorded responses in src/test/resources and encoding of a parameter update, with the wire codec
+ * and with GSON's reflective mapping as baseline.
+ *
+ * @author agent - Initial contribution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireCodecBenchmark {
+
+    @Param({ "get_groups_response.json", "get_groups_response_nanoe.json",
+            "get_groups_response_nanoesupport_quiet.json", "get_device_response_on.json",
+            "get_device_response_off.json", "get_device_response_nanoe.json", "get_device_response_lr.json" })
+    public String fixture;
+
+    @Param({ "codec", "reflective" })
+    public String mapping;
+
+    private Gson gson;
+    private TypeAdapter<?> adapter;
+    private byte[] body;
+    private SetDevicePropertiesRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        gson = "codec".equals(mapping) ? WireCodec.GSON : new GsonBuilder().setLenient().create();
+        Type type = fixture.startsWith("get_groups") ? GetGroupsResponse.class : DeviceDTO.class;
+        adapter = gson.getAdapter(TypeToken.get(type));
+        body = WireCodecBenchmark.class.getResourceAsStream("/" + fixture).readAllBytes();
+
+        ParametersDTO parameters = new ParametersDTO();
+        parameters.operate = 1;
+        parameters.operationMode = 3;
+        parameters.temperatureSet = 21.5;
+        parameters.fanSpeed = 0;
+        parameters.airSwingUD = 2;
+        request = new SetDevicePropertiesRequest("CS-Z25VKEW+4769389372", parameters);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return adapter.read(
+                gson.newJsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String encodeSetDevicePropertiesRequest() {
+        return gson.toJson(request);
+    }
+}
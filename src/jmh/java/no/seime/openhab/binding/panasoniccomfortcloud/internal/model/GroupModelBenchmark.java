@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GroupDTO;
+
+/**
+ * Device lookup by id, done by every thing handler on every refresh and command, for accounts of increasing size
+ *
+ * @author agent - Initial contribution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupModelBenchmark {
+    private static final int DEVICES_PER_GROUP = 10;
+
+    @Param({ "10", "1000", "10000" })
+    public int devices;
+
+    private GroupModel model;
+    private String firstDeviceId;
+    private String lastDeviceId;
+
+    @Setup
+    public void setUp() {
+        GroupDTO[] groupList = new GroupDTO[(devices + DEVICES_PER_GROUP - 1) / DEVICES_PER_GROUP];
+        for (int g = 0; g < groupList.length; g++) {
+            GroupDTO groupDTO = new GroupDTO();
+            groupDTO.groupId = String.valueOf(g);
+            groupDTO.groupName = "Group " + g;
+            groupDTO.devices = new DeviceDTO[Math.min(DEVICES_PER_GROUP, devices - g * DEVICES_PER_GROUP)];
+            for (int d = 0; d < groupDTO.devices.length; d++) {
+                int i = g * DEVICES_PER_GROUP + d;
+                DeviceDTO deviceDTO = new DeviceDTO();
+                deviceDTO.deviceGuid = "CS-Z25VKEW+" + (4769389372L + i);
+                deviceDTO.deviceName = "Device " + i;
+                deviceDTO.deviceType = "3";
+                groupDTO.devices[d] = deviceDTO;
+            }
+            groupList[g] = groupDTO;
+        }
+        model = new GroupModel(0).mergeFrom(groupList);
+        firstDeviceId = "CS-Z25VKEW+" + 4769389372L;
+        lastDeviceId = "CS-Z25VKEW+" + (4769389372L + devices - 1);
+    }
+
+    @Benchmark
+    public Optional<Device> findFirstDevice() {
+        return model.findDeviceByDeviceId(firstDeviceId);
+    }
+
+    @Benchmark
+    public Optional<Device> findLastDevice() {
+        return model.findDeviceByDeviceId(lastDeviceId);
+    }
+
+    @Benchmark
+    public Optional<Device> findUnknownDevice() {
+        return model.findDeviceByDeviceId("unknown");
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.ParametersDTO;
+
+/**
+ * Conversion between device DTOs and the model, done for every device status response and parameter update
+ *
+ * @author agent - Initial contribution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+    private DeviceDTO deviceDTO;
+    private Device device;
+    private Parameters parameters;
+    private ParametersDelta delta;
+
+    @Setup
+    public void setUp() throws IOException {
+        String json = new String(
+                ModelBenchmark.class.getResourceAsStream("/get_device_response_on.json").readAllBytes(),
+                StandardCharsets.UTF_8);
+        deviceDTO = WireCodec.GSON.fromJson(json, DeviceDTO.class);
+        device = new Device(new Group());
+        device.mergeFromDeviceDetails(deviceDTO);
+        parameters = device.getCurrentParameters();
+        delta = new ParametersDelta();
+        delta.setTargetTemperature(23d);
+        delta.setFanSpeed(FanSpeed.HIGH);
+    }
+
+    @Benchmark
+    public Parameters parametersFromDTO() {
+        return new Parameters(deviceDTO.parameters, device);
+    }
+
+    @Benchmark
+    public ParametersDTO parametersToDTO() {
+        return parameters.toParametersDTO(device);
+    }
+
+    @Benchmark
+    public Parameters parametersApplyDelta() {
+        return parameters.apply(delta);
+    }
+
+    @Benchmark
+    public ParametersDTO deltaToDTO() {
+        return delta.toParametersDTO(parameters, device);
+    }
+
+    @Benchmark
+    public FeatureSet featureSet() {
+        return new FeatureSet(deviceDTO);
+    }
+
+    @Benchmark
+    public boolean mergeFromDeviceDetails() {
+        return device.mergeFromDeviceDetails(deviceDTO);
+    }
+}
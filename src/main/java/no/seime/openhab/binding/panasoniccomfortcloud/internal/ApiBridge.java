@@ -12,18 +12,30 @@
  */
 package no.seime.openhab.binding.panasoniccomfortcloud.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.jsoup.Jsoup;
@@ -34,15 +46,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.config.AccountConfiguration;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.AbstractRequest;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.AbstractResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.ErrorResponse;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetAccClientIdDTO;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.LoginRequestDTO;
 import okhttp3.*;
-import okhttp3.logging.HttpLoggingInterceptor;
 
 /**
  * The {@link ApiBridge} is responsible for API login and communication
@@ -56,11 +70,15 @@ public class ApiBridge {
     private static final String APP_CLIENT_ID = "Xmy6xIYIitMxngjB2rHvlm6HSDNnaMJx";
     private static final String AUTH_0_CLIENT = "eyJuYW1lIjoiQXV0aDAuQW5kcm9pZCIsImVudiI6eyJhbmRyb2lkIjoiMzAifSwidmVyc2lvbiI6IjIuOS4zIn0=";
     private static final String REDIRECT_URI = "panasonic-iot-cfc://authglb.digital.panasonic.com/android/com.panasonic.ACCsmart/callback";
-    private static final String BASE_PATH_AUTH = "https://authglb.digital.panasonic.com";
-    private static final String BASE_PATH_ACC = "https://accsmart.panasonic.com";
-    private static final String ITUNES_APP_VERSION_URL = "https://itunes.apple.com/lookup?id=1348640525";
+    public static final String DEFAULT_AUTH_BASE_URL = "https://authglb.digital.panasonic.com";
+    public static final String DEFAULT_ACC_BASE_URL = "https://accsmart.panasonic.com";
+    public static final String DEFAULT_APP_VERSION_URL = "https://itunes.apple.com/lookup?id=1348640525";
+    public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 20;
+    public static final int DEFAULT_READ_TIMEOUT_SECONDS = 30;
     private static final String DEFAULT_APP_VERSION = "4.3.0";
 
+    private static final String TOKEN_KEY = "token";
+    // Keys used by earlier versions, migrated to TOKEN_KEY
     private static final String ACCESS_TOKEN_KEY = "accessToken";
     private static final String REFRESH_TOKEN_KEY = "refreshToken";
     private static final String CLIENT_ID_KEY = "clientId";
@@ -69,31 +87,86 @@ public class ApiBridge {
 
     private static final int ERROR_CODE_UPDATE_VERSION = 4106;
 
+    private static final int RENEWAL_LEAD_SECONDS = 10 * 60;
+    private static final int RENEWAL_JITTER_SECONDS = 5 * 60;
+    private static final int RENEWAL_RETRY_SECONDS = 5 * 60;
+    private static final int RENEWAL_MIN_DELAY_SECONDS = 60;
+
     private final Logger logger = LoggerFactory.getLogger(ApiBridge.class);
-    private MessageDigest digest = null;
+    private final RequestSigner requestSigner = new RequestSigner();
+    private final OkHttpClientFactory clientFactory;
+    private final CookieJar cookieJar;
+    private final WireTracer tracer = new WireTracer(WireTracer.Level.BASIC);
+    private final ApiMetrics metrics;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private volatile int circuitFailureThreshold = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+    private volatile Duration circuitBaseBackoff = Duration.ofSeconds(CircuitBreaker.DEFAULT_BASE_BACKOFF_SECONDS);
+    private volatile Duration circuitMaxBackoff = Duration.ofSeconds(CircuitBreaker.DEFAULT_MAX_BACKOFF_SECONDS);
+    private volatile String accBasePath = DEFAULT_ACC_BASE_URL;
+    private volatile String authBasePath = DEFAULT_AUTH_BASE_URL;
+    @Nullable
+    private volatile String appVersionUrl = DEFAULT_APP_VERSION_URL;
 
     private String clientId;
     private String username;
     private String password;
-    private String appVersion;
+    private volatile String appVersion;
     private Gson gson;
-    private OkHttpClient client;
+    private volatile OkHttpClient client;
+    /**
+     * Client for the login flow, which keeps session cookies and follows redirects manually
+     */
+    private volatile OkHttpClient authClient;
     private Storage<String> storage;
     private DateTimeFormatter dateTimeFormatter;
 
+    private final Object tokenLock = new Object();
+    @Nullable
+    private CompletableFuture<Token> tokenOperation;
+    @Nullable
+    private final ScheduledExecutorService scheduler;
+    @Nullable
+    private ScheduledFuture<?> renewalFuture;
+    // While set, a token due for refresh is served as is until the scheduled renewal retries
+    @Nullable
+    private volatile Instant refreshRetryAt;
+    private final Random random = new Random();
+    @Nullable
+    private volatile Token token;
+    private final AtomicBoolean persistPending = new AtomicBoolean();
+
     public ApiBridge(Storage<String> storage) {
+        this(storage, null);
+    }
+
+    /**
+     * @param scheduler used for renewing the token in the background ahead of expiry. If null, the token is only
+     *            renewed when a request finds it due for refresh.
+     */
+    public ApiBridge(Storage<String> storage, @Nullable ScheduledExecutorService scheduler) {
+        this(storage, scheduler, OkHttpClientFactory.UNSHARED);
+    }
+
+    /**
+     * @param clientFactory supplies the HTTP client, ie to route requests through a proxy or to trust a local server
+     */
+    public ApiBridge(Storage<String> storage, @Nullable ScheduledExecutorService scheduler,
+            OkHttpClientFactory clientFactory) {
+        this(storage, scheduler, clientFactory, ApiMetrics.disabled());
+    }
+
+    /**
+     * @param metrics records calls, errors and logins of this account
+     */
+    public ApiBridge(Storage<String> storage, @Nullable ScheduledExecutorService scheduler,
+            OkHttpClientFactory clientFactory, ApiMetrics metrics) {
         this.storage = storage;
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor(message -> logger.debug(message));
-        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
+        this.scheduler = scheduler;
+        this.clientFactory = clientFactory;
+        this.metrics = metrics;
         dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.of("GMT"));
 
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-
-        CookieJar cookieJar = new CookieJar() {
+        cookieJar = new CookieJar() {
 
             private Map<String, List<Cookie>> cookies = new HashMap<>();
 
@@ -110,10 +183,21 @@ public class ApiBridge {
             }
         };
 
-        client = new OkHttpClient.Builder().connectTimeout(20, TimeUnit.SECONDS).readTimeout(30, TimeUnit.SECONDS)
-                .followRedirects(false).followSslRedirects(false).addInterceptor(logging).cookieJar(cookieJar).build();
+        createClients(TransportProfile.DEFAULT, DEFAULT_CONNECT_TIMEOUT_SECONDS, DEFAULT_READ_TIMEOUT_SECONDS);
 
-        gson = new GsonBuilder().setLenient().setPrettyPrinting().create();
+        gson = WireCodec.GSON;
+        token = loadPersistedToken();
+    }
+
+    private void createClients(TransportProfile profile, int connectTimeoutSeconds, int readTimeoutSeconds) {
+        OkHttpClient apiClient = clientFactory.newBuilder(profile)
+                .connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS).addInterceptor(tracer)
+                .addInterceptor(metrics).eventListenerFactory(tracer::eventListener).cookieJar(cookieJar).build();
+        // Derived from the API client to share its connection pool and dispatcher. Redirects are part of the login flow
+        // and must be followed manually
+        authClient = apiClient.newBuilder().followRedirects(false).followSslRedirects(false).build();
+        client = apiClient;
     }
 
     private static @NonNull Map<String, String> parseCookies(Response redirectResponse) {
@@ -128,28 +212,7 @@ public class ApiBridge {
     }
 
     public String generateAPIKey(Instant timestamp, String accessToken) {
-        StringBuilder b = new StringBuilder();
-        b.append("Comfort Cloud");
-        b.append("521325fb2dd486bf4831b47644317fca");
-        b.append(timestamp.getEpochSecond() * 1000);
-        b.append("Bearer ");
-        b.append(accessToken);
-
-        byte[] hash = digest.digest(b.toString().getBytes(StandardCharsets.UTF_8));
-        String hex = bytesToHex(hash);
-        return hex.substring(0, 9) + "cfc" + hex.substring(9);
-    }
-
-    private static String bytesToHex(byte[] hash) {
-        StringBuilder hexString = new StringBuilder(2 * hash.length);
-        for (int i = 0; i < hash.length; i++) {
-            String hex = Integer.toHexString(0xff & hash[i]);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        return hexString.toString();
+        return requestSigner.sign(timestamp, accessToken);
     }
 
     public static String generateHash(String codeVerifier) throws NoSuchAlgorithmException {
@@ -167,29 +230,93 @@ public class ApiBridge {
         return b.toString();
     }
 
+    /**
+     * Apply credentials, endpoints and timeouts from the account configuration. Does no network I/O.
+     *
+     * @throws ConfigurationException if an endpoint is not a valid http(s) URL
+     */
+    public void init(AccountConfiguration config) throws ConfigurationException {
+        String acc = parseBaseUrl("accBaseUrl", config.accBaseUrl);
+        String auth = parseBaseUrl("authBaseUrl", config.authBaseUrl);
+        String appVersionLookup = StringUtils.trimToNull(config.appVersionUrl);
+        if (appVersionLookup != null && HttpUrl.parse(appVersionLookup) == null) {
+            throw new ConfigurationException("Invalid appVersionUrl: " + appVersionLookup);
+        }
+        WireTracer.Level traceLevel;
+        try {
+            traceLevel = WireTracer.Level.valueOf(StringUtils.trimToEmpty(config.wireTrace).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException("Invalid wireTrace: " + config.wireTrace);
+        }
+
+        accBasePath = acc;
+        authBasePath = auth;
+        appVersionUrl = appVersionLookup;
+        tracer.setLevel(traceLevel);
+        circuitFailureThreshold = config.circuitFailureThreshold;
+        circuitBaseBackoff = Duration.ofSeconds(Math.max(1, config.circuitBaseBackoff));
+        circuitMaxBackoff = Duration.ofSeconds(Math.max(1, config.circuitMaxBackoff));
+        circuitBreakers.clear();
+        createClients(TransportProfile.of(config), config.connectTimeout, config.readTimeout);
+        init(config.username, config.password, StringUtils.trimToNull(config.appVersion));
+    }
+
+    private static String parseBaseUrl(String name, @Nullable String value) throws ConfigurationException {
+        String trimmed = StringUtils.removeEnd(StringUtils.trimToEmpty(value), "/");
+        if (HttpUrl.parse(trimmed) == null) {
+            throw new ConfigurationException("Invalid " + name + ": " + value);
+        }
+        return trimmed;
+    }
+
+    /**
+     * Set credentials. The app version is resolved lazily before the first login, so this method does no network I/O.
+     */
     public void init(String username, String password, String configuredAppVersion) {
         this.username = username;
         this.password = password;
+        this.appVersion = configuredAppVersion;
+
+        Token token = getStoredToken();
+        if (token != null && !token.isExpired()) {
+            scheduleRenewal(token);
+        }
+    }
+
+    /**
+     * Stop background token renewal
+     */
+    public void dispose() {
+        synchronized (tokenLock) {
+            ScheduledFuture<?> renewal = renewalFuture;
+            if (renewal != null) {
+                renewal.cancel(false);
+                renewalFuture = null;
+            }
+        }
+    }
 
-        if (configuredAppVersion == null) {
+    private synchronized String resolveAppVersion() {
+        if (appVersion == null) {
             logger.debug("No configured appVersion in thing configuration, trying to fetch from iTunes lookup");
-            appVersion = getAppVersion();
-            if (appVersion == null) {
+            String fetchedAppVersion = getAppVersion();
+            if (fetchedAppVersion == null) {
                 logger.info(
                         "Could not fetch appVersion dynamically, and no value is provided on the bridge thing. Defaulting to  {}",
                         DEFAULT_APP_VERSION);
                 appVersion = DEFAULT_APP_VERSION;
             } else {
-                logger.debug("Fetched appVersion from iTunes lookup: {}", appVersion);
+                logger.debug("Fetched appVersion from iTunes lookup: {}", fetchedAppVersion);
+                appVersion = fetchedAppVersion;
             }
-        } else {
-            appVersion = configuredAppVersion;
         }
+        return appVersion;
     }
 
-    private Request buildRequest(Token token, final AbstractRequest req) {
+    Request buildRequest(Token token, final AbstractRequest req) {
 
-        Request.Builder request = new Request.Builder().url(BASE_PATH_ACC + req.getRequestUrl());
+        Request.Builder request = ApiMetrics.endpoint(new Request.Builder(), endpointOf(req))
+                .url(accBasePath + req.getRequestUrl());
 
         if (req.getMethod().equals("POST")) {
             final String reqJson = gson.toJson(req);
@@ -210,8 +337,190 @@ public class ApiBridge {
         return request.build();
     }
 
+    private static String endpointOf(AbstractRequest req) {
+        return req.getClass().getSimpleName();
+    }
+
+    /**
+     * @return the circuit breaker guarding all requests of the same type as <code>req</code>
+     */
+    public CircuitBreaker getCircuitBreaker(AbstractRequest req) {
+        return getCircuitBreaker(endpointOf(req));
+    }
+
+    private CircuitBreaker getCircuitBreaker(String endpoint) {
+        return circuitBreakers.computeIfAbsent(endpoint,
+                e -> new CircuitBreaker(e, circuitFailureThreshold, circuitBaseBackoff, circuitMaxBackoff));
+    }
+
+    private void acquireCircuit(CircuitBreaker breaker) throws CircuitOpenException {
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException(breaker.getEndpoint(), breaker.getRemainingBackoff());
+        }
+    }
+
+    /**
+     * Record the outcome of a request let through by the circuit breaker. Only network errors, server errors and
+     * throttling count as failures; any other response proves the service is reachable.
+     *
+     * @param code HTTP status, or -1 if no response was received
+     */
+    private void recordOutcome(CircuitBreaker breaker, int code) {
+        if (code >= 500 || code == 429 || code < 0) {
+            if (breaker.recordFailure()) {
+                logger.info("Circuit for {} opened, next attempt in {} seconds", breaker.getEndpoint(),
+                        breaker.getRemainingBackoff().toSeconds());
+            }
+        } else if (breaker.recordSuccess()) {
+            logger.info("Circuit for {} closed, service is reachable again", breaker.getEndpoint());
+        }
+    }
+
     public <T> T sendRequest(final AbstractRequest req, final Type responseType) throws PanasonicComfortCloudException {
+        return sendRequestInternal(buildRequest(getValidToken(), req), req, responseType);
+    }
+
+    /**
+     * Send a request without blocking the calling thread. Authentication, if needed, runs on the HTTP client's own
+     * threads, and the response is decoded on the thread completing the call.
+     *
+     * @return future completed with the decoded response, or exceptionally with a
+     *         {@link PanasonicComfortCloudException}
+     */
+    public <T> CompletableFuture<T> sendRequestAsync(final AbstractRequest req, final Type responseType) {
+        return this.<T> sendRequestAsync(req, responseType, false, 0).thenApply(FingerprintedResponse::getResponse);
+    }
+
+    /**
+     * Send a request, but skip decoding the response if the body is unchanged (apart from volatile fields such as
+     * timestamp) since the response that produced <code>previousFingerprint</code>.
+     */
+    public <T> CompletableFuture<FingerprintedResponse<T>> sendRequestIfChangedAsync(final AbstractRequest req,
+            final Type responseType, long previousFingerprint) {
+        return sendRequestAsync(req, responseType, true, previousFingerprint);
+    }
+
+    private <T> CompletableFuture<FingerprintedResponse<T>> sendRequestAsync(final AbstractRequest req,
+            final Type responseType, boolean fingerprint, long previousFingerprint) {
+        return getValidTokenAsync().thenCompose(token -> {
+            CompletableFuture<FingerprintedResponse<T>> result = new CompletableFuture<>();
+            CircuitBreaker breaker = getCircuitBreaker(req);
+            try {
+                acquireCircuit(breaker);
+            } catch (CircuitOpenException e) {
+                result.completeExceptionally(e);
+                return result;
+            }
+            client.newCall(buildRequest(token, req)).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    recordOutcome(breaker, -1);
+                    result.completeExceptionally(
+                            new CommunicationException("General error communicating with service: " + e, e));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    recordOutcome(breaker, response.code());
+                    try (response) {
+                        result.complete(decodeResponse(response, req, responseType, fingerprint, previousFingerprint));
+                    } catch (PanasonicComfortCloudException e) {
+                        result.completeExceptionally(e);
+                    } catch (Exception e) {
+                        result.completeExceptionally(
+                                new CommunicationException("General error communicating with service: " + e, e));
+                    }
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * Completes immediately if a valid token is present. Otherwise login or token refresh is run on the HTTP client's
+     * executor, so that the caller never blocks on authentication. At most one login or refresh is in flight at any
+     * time; concurrent callers share its result.
+     */
+    private CompletableFuture<Token> getValidTokenAsync() {
+        Token token = getStoredToken();
+        if (appVersion != null && token != null && !token.isExpired()
+                && (!token.shouldRefresh() || isRefreshDeferred())) {
+            return CompletableFuture.completedFuture(token);
+        }
+        return startTokenOperation(this::acquireToken);
+    }
+
+    /**
+     * Start the given token operation on the HTTP client's executor, or join the one already in flight
+     */
+    private CompletableFuture<Token> startTokenOperation(TokenOperation op) {
+        synchronized (tokenLock) {
+            CompletableFuture<Token> operation = tokenOperation;
+            if (operation == null) {
+                CompletableFuture<Token> newOperation = new CompletableFuture<>();
+                try {
+                    client.dispatcher().executorService().execute(() -> runTokenOperation(op, newOperation));
+                    tokenOperation = newOperation;
+                } catch (RejectedExecutionException e) {
+                    // The transport has been shut down
+                    newOperation.completeExceptionally(
+                            new CommunicationException("Unable to obtain access token, HTTP client is shut down", e));
+                }
+                operation = newOperation;
+            }
+            return operation;
+        }
+    }
+
+    private void runTokenOperation(TokenOperation op, CompletableFuture<Token> operation) {
+        try {
+            operation.complete(op.run());
+        } catch (Exception e) {
+            operation.completeExceptionally(e);
+        } finally {
+            // Let the next caller start a new operation rather than join this completed one
+            synchronized (tokenLock) {
+                if (tokenOperation == operation) {
+                    tokenOperation = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocking variant of {@link #getValidTokenAsync()}, joining any login or refresh already in flight
+     */
+    private Token getValidToken() throws CommunicationException {
+        try {
+            return getValidTokenAsync().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommunicationException("Interrupted while waiting for access token");
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof CommunicationException) {
+                throw (CommunicationException) cause;
+            }
+            throw new CommunicationException("Error obtaining access token", cause);
+        }
+    }
+
+    /**
+     * @return the {@link PanasonicComfortCloudException} or other cause wrapped by a failed future
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        Throwable t = throwable;
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
 
+    /**
+     * The actual login or token refresh. Only called through the single in-flight token operation.
+     */
+    private Token acquireToken() throws CommunicationException {
+        resolveAppVersion();
         Token token = getStoredToken();
         if (token == null || token.isExpired()) {
             token = getNewToken();
@@ -220,23 +529,122 @@ public class ApiBridge {
         if (token.shouldRefresh()) {
             try {
                 token = refreshToken(token);
-                storeToken(token);
+                metrics.authentication(ApiMetrics.AUTH_REFRESH, true);
+                tokenObtained(token);
             } catch (CommunicationException | IOException e) {
-                clearToken();
-                token = getNewToken();
+                metrics.authentication(ApiMetrics.AUTH_REFRESH, false);
+                // The current token stays in place until the login has replaced it
+                Token current = token;
+                try {
+                    token = getNewToken();
+                } catch (CommunicationException loginError) {
+                    if (current.isExpired()) {
+                        throw loginError;
+                    }
+                    logger.debug("Token refresh and login failed, using current token until it expires: {}",
+                            loginError.getMessage());
+                    deferRefresh();
+                }
             }
         }
+        return token;
+    }
 
-        return sendRequestInternal(buildRequest(token, req), req, responseType);
+    /**
+     * Background renewal ahead of expiry. Refreshes the current token, falling back to a full login if the refresh
+     * fails. The current token is left in place until a new one is obtained, so requests are served meanwhile.
+     */
+    private Token renewToken() throws CommunicationException {
+        resolveAppVersion();
+        Token token = getStoredToken();
+        if (token != null && !token.isExpired()) {
+            try {
+                Token refreshed = refreshToken(token);
+                metrics.authentication(ApiMetrics.AUTH_REFRESH, true);
+                tokenObtained(refreshed);
+                logger.debug("Access token renewed in background");
+                return refreshed;
+            } catch (CommunicationException | IOException e) {
+                metrics.authentication(ApiMetrics.AUTH_REFRESH, false);
+                logger.debug("Background token refresh failed, falling back to login: {}", e.getMessage());
+            }
+        }
+        return getNewToken();
     }
 
+    private void renewInBackground() {
+        startTokenOperation(this::renewToken).whenComplete((token, e) -> {
+            if (e != null) {
+                Token current = getStoredToken();
+                logger.info("Background token renewal failed, retrying in {} seconds: {}", RENEWAL_RETRY_SECONDS,
+                        unwrap(e).getMessage());
+                if (current != null && !current.isExpired()) {
+                    deferRefresh();
+                }
+            }
+        });
+    }
+
+    /**
+     * Serve the current token without further refresh attempts until the background renewal retries, so that a failing
+     * refresh is not repeated by every request
+     */
+    private void deferRefresh() {
+        long delaySeconds = RENEWAL_RETRY_SECONDS + random.nextInt(RENEWAL_JITTER_SECONDS);
+        refreshRetryAt = Instant.now().plusSeconds(delaySeconds);
+        scheduleRenewalIn(delaySeconds);
+    }
+
+    private boolean isRefreshDeferred() {
+        Instant retryAt = refreshRetryAt;
+        return retryAt != null && Instant.now().isBefore(retryAt);
+    }
+
+    /**
+     * Schedule background renewal some time before the token is due for refresh, so that requests never find it due
+     */
+    private void scheduleRenewal(Token token) {
+        long renewAt = token.getRefreshAt() - RENEWAL_LEAD_SECONDS - random.nextInt(RENEWAL_JITTER_SECONDS);
+        scheduleRenewalIn(Math.max(RENEWAL_MIN_DELAY_SECONDS, renewAt - Instant.now().getEpochSecond()));
+    }
+
+    private void scheduleRenewalIn(long delaySeconds) {
+        ScheduledExecutorService renewalScheduler = scheduler;
+        if (renewalScheduler == null) {
+            return;
+        }
+        synchronized (tokenLock) {
+            ScheduledFuture<?> previous = renewalFuture;
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            renewalFuture = renewalScheduler.schedule(this::renewInBackground, delaySeconds, TimeUnit.SECONDS);
+        }
+        logger.debug("Access token renewal scheduled in {} seconds", delaySeconds);
+    }
+
+    private void tokenObtained(Token token) {
+        refreshRetryAt = null;
+        storeToken(token);
+        scheduleRenewal(token);
+    }
+
+    /**
+     * Log in. Any failure counts against the login circuit, so that wrong credentials or an outdated app version do
+     * not cause a login attempt on every poll.
+     */
     private @NonNull Token getNewToken() throws CommunicationException {
+        CircuitBreaker breaker = getCircuitBreaker(ApiMetrics.ENDPOINT_LOGIN);
+        acquireCircuit(breaker);
         try {
             Token token = doV2AuthorizationFlow();
-            storeToken(token);
+            breaker.recordSuccess();
+            metrics.authentication(ApiMetrics.AUTH_LOGIN, true);
+            tokenObtained(token);
             return token;
         } catch (Exception e) {
-            clearToken();
+            recordOutcome(breaker, -1);
+            metrics.authentication(ApiMetrics.AUTH_LOGIN, false);
             throw new CommunicationException("Error obtaining access token - check credentials and appVersion", e);
         }
     }
@@ -259,8 +667,7 @@ public class ApiBridge {
         String codeVerifier = generateRandomString(43);
         String codeChallenge = generateHash(codeVerifier);
 
-        HttpUrl url = new HttpUrl.Builder().scheme("https").host("authglb.digital.panasonic.com")
-                .addPathSegments("/authorize")
+        HttpUrl url = HttpUrl.get(authBasePath).newBuilder().addPathSegments("/authorize")
                 .addQueryParameter("scope", "openid offline_access comfortcloud.control a2w.control")
                 .addQueryParameter("audience", "https://digital.panasonic.com/" + APP_CLIENT_ID + "/api/v1/")
                 .addQueryParameter("protocol", "oauth2").addQueryParameter("response_type", "code")
@@ -268,10 +675,10 @@ public class ApiBridge {
                 .addQueryParameter("auth0Client", AUTH_0_CLIENT).addQueryParameter("client_id", APP_CLIENT_ID)
                 .addQueryParameter("redirect_uri", REDIRECT_URI).addQueryParameter("state", state).build();
 
-        Request authorizeRequest = new Request.Builder().get().url(url).addHeader("user-agent", "okhttp/4.10.0")
-                .build();
+        Request authorizeRequest = ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_AUTHORIZE).get()
+                .url(url).addHeader("user-agent", "okhttp/4.10.0").build();
 
-        Response authorizeResponse = client.newCall(authorizeRequest).execute();
+        Response authorizeResponse = authClient.newCall(authorizeRequest).execute();
 
         if (authorizeResponse.code() != 302) {
             throw new CommunicationException("Authorize request failed with code " + authorizeResponse.code()
@@ -286,9 +693,12 @@ public class ApiBridge {
         state = getQueryStringParameterFromHeaderEntryUrl(authorizeResponse, "Location", "state");
 
         if (!location.startsWith(REDIRECT_URI)) {
-            HttpUrl redirectUrl = HttpUrl.parse(BASE_PATH_AUTH + "/" + location);
+            HttpUrl redirectUrl = HttpUrl.parse(authBasePath + "/" + location);
 
-            Response redirectResponse = client.newCall(new Request.Builder().get().url(redirectUrl).build()).execute();
+            Response redirectResponse = authClient.newCall(
+                    ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_LOGIN_PAGE).get().url(redirectUrl)
+                            .build())
+                    .execute();
             Map<String, String> cookies = parseCookies(redirectResponse);
             String csrf = cookies.get("_csrf");
 
@@ -319,10 +729,11 @@ public class ApiBridge {
             loginJson.lang = "en";
             loginJson.connection = "PanasonicID-Authentication";
 
-            Request.Builder loginRequest = new Request.Builder().url(BASE_PATH_AUTH + "/usernamepassword/login")
+            Request.Builder loginRequest = ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_LOGIN)
+                    .url(authBasePath + "/usernamepassword/login")
                     .addHeader("user-agent", "okhttp/4.10.0").addHeader("Auth0-Client", AUTH_0_CLIENT)
                     .post(RequestBody.create(MediaType.parse("application/json"), gson.toJson(loginJson)));
-            Response loginResponse = client.newCall(loginRequest.build()).execute();
+            Response loginResponse = authClient.newCall(loginRequest.build()).execute();
 
             if (loginResponse.code() != 200) {
                 throw new CommunicationException("Login request failed with code " + loginResponse.code()
@@ -341,11 +752,11 @@ public class ApiBridge {
                 requestBody.add(elements.get(i).attr("name"), elements.get(i).attr("value"));
             }
 
-            Request submitFormRequest = new Request.Builder().url(BASE_PATH_AUTH + "/login/callback").addHeader(
-                    "User-Agent",
-                    "Mozilla/5.0 (Linux; Android 10; K) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/113.0.0.0 Mobile Safari/537.36")
+            Request submitFormRequest = ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_LOGIN_CALLBACK)
+                    .url(authBasePath + "/login/callback").addHeader("User-Agent",
+                            "Mozilla/5.0 (Linux; Android 10; K) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/113.0.0.0 Mobile Safari/537.36")
                     .addHeader("Content-Type", "application/x-www-form-urlencoded").post(requestBody.build()).build();
-            Response submitFormResponse = client.newCall(submitFormRequest).execute();
+            Response submitFormResponse = authClient.newCall(submitFormRequest).execute();
 
             if (submitFormResponse.code() != 302) {
                 throw new CommunicationException("Callback request failed with code " + submitFormResponse.code()
@@ -357,8 +768,10 @@ public class ApiBridge {
             // ------------------------------------------------------------------
 
             String newLocation = submitFormResponse.header("Location");
-            Request followRedirectRequest = new Request.Builder().url(BASE_PATH_AUTH + "/" + newLocation).build();
-            authorizeResponse = client.newCall(followRedirectRequest).execute();
+            Request followRedirectRequest = ApiMetrics
+                    .endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_AUTHORIZE_RESUME)
+                    .url(authBasePath + "/" + newLocation).build();
+            authorizeResponse = authClient.newCall(followRedirectRequest).execute();
 
             if (authorizeResponse.code() != 302) {
                 throw new CommunicationException("Follow Redirect request failed with code " + authorizeResponse.code()
@@ -373,13 +786,14 @@ public class ApiBridge {
         String code = getQueryStringParameterFromHeaderEntryUrl(authorizeResponse, "Location", "code");
         Instant now = Instant.now();
 
-        Request getTokenRequest = new Request.Builder().url(BASE_PATH_AUTH + "/oauth/token")
-                .addHeader("User-Agent", "okhttp/4.10.0").addHeader("Auth0-Client", AUTH_0_CLIENT)
+        Request getTokenRequest = ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_TOKEN)
+                .url(authBasePath + "/oauth/token").addHeader("User-Agent", "okhttp/4.10.0")
+                .addHeader("Auth0-Client", AUTH_0_CLIENT)
                 .post(new FormBody.Builder().add("scope", "openid").add("client_id", APP_CLIENT_ID)
                         .add("grant_type", "authorization_code").add("code", code).add("redirect_uri", REDIRECT_URI)
                         .add("code_verifier", codeVerifier).build())
                 .build();
-        Response getTokenResponse = client.newCall(getTokenRequest).execute();
+        Response getTokenResponse = authClient.newCall(getTokenRequest).execute();
 
         if (getTokenResponse.code() != 200) {
             throw new CommunicationException("Get token request failed with code " + authorizeResponse.code()
@@ -398,7 +812,8 @@ public class ApiBridge {
                 gson.toJson(new GetAccClientIdDTO()));
 
         String formattedDate = dateTimeFormatter.format(now);
-        Request getAccClientIdRequest = new Request.Builder().post(body).url(BASE_PATH_ACC + "/auth/v2/login")
+        Request getAccClientIdRequest = ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_CLIENT_ID)
+                .post(body).url(accBasePath + "/auth/v2/login")
                 .addHeader("Accept-Encoding", "gzip, deflate").addHeader("Accept", "*/*")
                 .addHeader("User-Agent", "G-RAC").addHeader("Content-Type", "application/json;charset=utf-8")
                 .addHeader("x-app-name", "Comfort Cloud").addHeader("x-app-timestamp", formattedDate)
@@ -413,6 +828,7 @@ public class ApiBridge {
             final JsonObject o = JsonParser.parseString(getAccClientResponse.body().string()).getAsJsonObject();
             int errorCode = o.has("code") ? o.get("code").getAsInt() : -1;
             String errorMessage = o.has("message") ? o.get("message").getAsString() : "<not provided>";
+            metrics.apiError(ApiMetrics.ENDPOINT_CLIENT_ID, errorCode);
 
             if (errorCode == ERROR_CODE_UPDATE_VERSION) {
                 throw new CommunicationException(String.format(
@@ -440,13 +856,14 @@ public class ApiBridge {
     }
 
     private Token refreshToken(Token currentToken) throws IOException, CommunicationException {
-        Request getTokenRequest = new Request.Builder().url(BASE_PATH_AUTH + "/oauth/token")
-                .addHeader("User-Agent", "okhttp/4.10.0").addHeader("Auth0-Client", AUTH_0_CLIENT)
+        Request getTokenRequest = ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_TOKEN_REFRESH)
+                .url(authBasePath + "/oauth/token").addHeader("User-Agent", "okhttp/4.10.0")
+                .addHeader("Auth0-Client", AUTH_0_CLIENT)
                 .post(new FormBody.Builder().add("scope", currentToken.getScope()).add("client_id", APP_CLIENT_ID)
                         .add("refresh_token", currentToken.getRefreshToken()).add("grant_type", "refresh_token")
                         .build())
                 .build();
-        Response getTokenResponse = client.newCall(getTokenRequest).execute();
+        Response getTokenResponse = authClient.newCall(getTokenRequest).execute();
 
         if (getTokenResponse.code() != 200) {
             throw new CommunicationException("Refresh token request failed with code " + getTokenResponse.code()
@@ -465,8 +882,13 @@ public class ApiBridge {
     }
 
     String getAppVersion() {
-        Request request = new Request.Builder().url(ITUNES_APP_VERSION_URL).get().addHeader("User-Agent",
-                "Mozilla/5.0 (Linux; Android 10; K) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/113.0.0.0 Mobile Safari/537.36")
+        String lookupUrl = appVersionUrl;
+        if (lookupUrl == null) {
+            return null;
+        }
+        Request request = ApiMetrics.endpoint(new Request.Builder(), ApiMetrics.ENDPOINT_APP_VERSION).url(lookupUrl)
+                .get().addHeader("User-Agent",
+                        "Mozilla/5.0 (Linux; Android 10; K) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/113.0.0.0 Mobile Safari/537.36")
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
@@ -491,73 +913,165 @@ public class ApiBridge {
 
     public <T> T sendRequestInternal(final Request request, final AbstractRequest req, final Type responseType)
             throws PanasonicComfortCloudException {
+        FingerprintedResponse<T> response = sendRequestInternal(request, req, responseType, false, 0);
+        return response.getResponse();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.code() == 200) {
-                final JsonObject o = JsonParser.parseString(response.body().string()).getAsJsonObject();
-                if (o.has("message")) {
-                    throw new CommunicationException(req, o.get("message").getAsString());
-                } else {
-                    T responseJson = gson.fromJson(o, responseType);
-                    if (responseJson != null) {
-                        return responseJson;
-                    } else {
-                        throw new CommunicationException(
-                                "Unable to unmarshal response from API: " + response.body().string());
-                    }
-                }
+    private <T> FingerprintedResponse<T> sendRequestInternal(final Request request, final AbstractRequest req,
+            final Type responseType, boolean fingerprint, long previousFingerprint)
+            throws PanasonicComfortCloudException {
 
-            } else if (response.code() != 200) {
-                final JsonObject o = JsonParser.parseString(response.body().string()).getAsJsonObject();
-                int errorCode = o.has("code") ? o.get("code").getAsInt() : -1;
-                String errorMessage = o.has("message") ? o.get("message").getAsString() : "<not provided>";
-
-                if (errorCode == ERROR_CODE_UPDATE_VERSION) {
-                    throw new CommunicationException(String.format(
-                            "New app version published - check the version number of your mobile app and enter the value as account config parameter (currently using %s)",
-                            appVersion));
-                } else {
-                    throw new CommunicationException(
-                            String.format("Request failed: code %d, message %s", errorCode, errorMessage));
-                }
-            } else {
-                throw new CommunicationException("Error sending request to server. Server responded with "
-                        + response.code() + " and payload " + response.body().string());
-            }
+        CircuitBreaker breaker = getCircuitBreaker(req);
+        acquireCircuit(breaker);
+        Response response;
+        try {
+            response = client.newCall(request).execute();
+        } catch (IOException e) {
+            recordOutcome(breaker, -1);
+            throw new CommunicationException("General error communicating with service: " + e);
+        }
+        recordOutcome(breaker, response.code());
+        try (response) {
+            return decodeResponse(response, req, responseType, fingerprint, previousFingerprint);
+        } catch (PanasonicComfortCloudException e) {
+            throw e;
         } catch (Exception e) {
             throw new CommunicationException("General error communicating with service: " + e);
         }
     }
 
+    private <T> FingerprintedResponse<T> decodeResponse(final Response response, final AbstractRequest req,
+            final Type responseType, boolean fingerprint, long previousFingerprint)
+            throws PanasonicComfortCloudException, IOException {
+        if (response.code() == 200) {
+            if (!fingerprint) {
+                return new FingerprintedResponse<>(null, decode(response.body().charStream(), req, responseType));
+            }
+            // The raw bytes are needed for the fingerprint, decode from them rather than reading the body again
+            final byte[] body = response.body().bytes();
+            ResponseFingerprint responseFingerprint = ResponseFingerprint.of(body);
+            if (responseFingerprint.getValue() == previousFingerprint) {
+                return new FingerprintedResponse<>(responseFingerprint, null);
+            }
+            return new FingerprintedResponse<>(responseFingerprint, decode(
+                    new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), req, responseType));
+        } else {
+            ErrorResponse error;
+            try {
+                error = WireCodec.<ErrorResponse> adapterFor(WireCodec.ERROR_RESPONSE)
+                        .read(gson.newJsonReader(response.body().charStream()));
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                // Not an error envelope, ie an HTML page or empty body from a gateway
+                logger.debug("Unable to parse error response with HTTP status {}: {}", response.code(), e.getMessage());
+                error = null;
+            }
+            int errorCode = error != null ? error.code : response.code();
+            String errorMessage = error != null && error.message != null ? error.message : "<not provided>";
+            metrics.apiError(endpointOf(req), errorCode);
+
+            if (errorCode == ERROR_CODE_UPDATE_VERSION) {
+                throw new CommunicationException(String.format(
+                        "New app version published - check the version number of your mobile app and enter the value as account config parameter (currently using %s)",
+                        appVersion));
+            } else {
+                throw new CommunicationException(
+                        String.format("Request failed: code %d, message %s", errorCode, errorMessage));
+            }
+        }
+    }
+
+    /**
+     * Bind the body in a single streaming pass. Error envelopes are detected through the <code>message</code> field of
+     * {@link AbstractResponse}.
+     */
+    private <T> T decode(Reader body, final AbstractRequest req, final Type responseType)
+            throws PanasonicComfortCloudException, IOException {
+        T responseJson = WireCodec.<T> adapterFor(responseType).read(gson.newJsonReader(body));
+        if (responseJson == null) {
+            throw new CommunicationException("Unable to unmarshal response from API: empty body");
+        }
+        if (responseJson instanceof AbstractResponse && ((AbstractResponse) responseJson).message != null) {
+            throw new CommunicationException(req, ((AbstractResponse) responseJson).message);
+        }
+        return responseJson;
+    }
+
     @Nullable
     private Token getStoredToken() {
+        return token;
+    }
+
+    private void storeToken(Token token) {
+        this.token = token;
+        persistToken();
+    }
+
+    /**
+     * Write the current token to storage in the background. Consecutive updates are coalesced, and the latest token is
+     * always the one written.
+     */
+    private void persistToken() {
+        if (persistPending.compareAndSet(false, true)) {
+            try {
+                client.dispatcher().executorService().execute(() -> {
+                    persistPending.set(false);
+                    Token current = token;
+                    if (current != null) {
+                        storage.put(TOKEN_KEY, gson.toJson(current));
+                    } else {
+                        storage.remove(TOKEN_KEY);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the token in memory is still valid for this login
+                persistPending.set(false);
+                logger.debug("Could not persist access token, HTTP client is shut down");
+            }
+        }
+    }
+
+    /**
+     * Load the persisted token, migrating tokens stored as separate keys by earlier versions to a single record
+     */
+    @Nullable
+    private Token loadPersistedToken() {
+        String record = storage.get(TOKEN_KEY);
+        if (record != null) {
+            try {
+                return gson.fromJson(record, Token.class);
+            } catch (JsonParseException e) {
+                logger.debug("Discarding unreadable stored token: {}", e.getMessage());
+                storage.remove(TOKEN_KEY);
+                return null;
+            }
+        }
+
         String accessToken = storage.get(ACCESS_TOKEN_KEY);
         String refreshToken = storage.get(REFRESH_TOKEN_KEY);
         String clientId = storage.get(CLIENT_ID_KEY);
         String tokenExpiryString = storage.get(TOKEN_EXPIRY_KEY);
-        if (tokenExpiryString == null) {
-            tokenExpiryString = Instant.now().minus(1, ChronoUnit.MINUTES).getEpochSecond() + ""; // Expired, but should
-                                                                                                  // not happen
-        }
-        long tokenExpiry = Long.parseLong(tokenExpiryString);
         String scope = storage.get(SCOPE_KEY);
-
-        if (accessToken == null || refreshToken == null || clientId == null || scope == null) {
+        if (accessToken == null && refreshToken == null && clientId == null && tokenExpiryString == null
+                && scope == null) {
             return null;
         }
 
-        return new Token(accessToken, refreshToken, clientId, tokenExpiry, scope);
-    }
-
-    private void storeToken(Token token) {
-        storage.put(ACCESS_TOKEN_KEY, token.getAccessToken());
-        storage.put(REFRESH_TOKEN_KEY, token.getRefreshToken());
-        storage.put(CLIENT_ID_KEY, token.getClientId());
-        storage.put(TOKEN_EXPIRY_KEY, String.valueOf(token.getTokenExpiry()));
-        storage.put(SCOPE_KEY, token.getScope());
+        Token legacyToken = null;
+        if (accessToken != null && refreshToken != null && clientId != null && tokenExpiryString != null
+                && scope != null) {
+            try {
+                legacyToken = new Token(accessToken, refreshToken, clientId, Long.parseLong(tokenExpiryString),
+                        scope);
+                storage.put(TOKEN_KEY, gson.toJson(legacyToken));
+            } catch (NumberFormatException e) {
+                logger.debug("Discarding unreadable stored token: {}", e.getMessage());
+            }
+        }
+        removeLegacyTokenKeys();
+        return legacyToken;
     }
 
-    private void clearToken() {
+    private void removeLegacyTokenKeys() {
         storage.remove(ACCESS_TOKEN_KEY);
         storage.remove(REFRESH_TOKEN_KEY);
         storage.remove(CLIENT_ID_KEY);
@@ -565,7 +1079,12 @@ public class ApiBridge {
         storage.remove(SCOPE_KEY);
     }
 
-    private static class Token {
+    @FunctionalInterface
+    private interface TokenOperation {
+        Token run() throws CommunicationException;
+    }
+
+    static class Token {
         String accessToken;
         String refreshToken;
         String clientId;
@@ -600,8 +1119,12 @@ public class ApiBridge {
             return scope;
         }
 
+        public long getRefreshAt() {
+            return tokenExpiry - 60 * 60; // Refresh 1 hour before expiry
+        }
+
         public boolean shouldRefresh() {
-            return (tokenExpiry - 60 * 60) < Instant.now().getEpochSecond(); // Refresh 1 hour before expiry
+            return getRefreshAt() < Instant.now().getEpochSecond();
         }
 
         public boolean isExpired() {
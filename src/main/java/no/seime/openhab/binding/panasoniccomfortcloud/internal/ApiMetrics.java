@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.PollCycleResult;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Micrometer metrics of one account. As an interceptor it records count, latency, status and bytes of every HTTP
+ * call, per endpoint. Endpoints are the request class for API calls, and the login step for the login flow, see
+ * {@link #endpoint(Request.Builder, String)}. All meters are tagged with the account.
+ * <p>
+ * Bytes are taken from the Content-Length of requests and responses, and not counted when it is unknown.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ApiMetrics implements Interceptor {
+    public static final String PREFIX = "panasoniccomfortcloud.";
+
+    public static final String ENDPOINT_AUTHORIZE = "authorize";
+    public static final String ENDPOINT_LOGIN_PAGE = "loginPage";
+    public static final String ENDPOINT_LOGIN = "login";
+    public static final String ENDPOINT_LOGIN_CALLBACK = "loginCallback";
+    public static final String ENDPOINT_AUTHORIZE_RESUME = "authorizeResume";
+    public static final String ENDPOINT_TOKEN = "token";
+    public static final String ENDPOINT_TOKEN_REFRESH = "tokenRefresh";
+    public static final String ENDPOINT_CLIENT_ID = "clientId";
+    public static final String ENDPOINT_APP_VERSION = "appVersion";
+    private static final String ENDPOINT_OTHER = "other";
+
+    public static final String AUTH_LOGIN = "login";
+    public static final String AUTH_REFRESH = "refresh";
+
+    private final MeterRegistry registry;
+    private final Tags accountTags;
+
+    public ApiMetrics(MeterRegistry registry, String account) {
+        this.registry = registry;
+        this.accountTags = Tags.of("account", account);
+    }
+
+    /**
+     * @return metrics recorded nowhere, for use when no registry is available
+     */
+    public static ApiMetrics disabled() {
+        // A composite registry without children hands out no-op meters
+        return new ApiMetrics(new CompositeMeterRegistry(), "");
+    }
+
+    /**
+     * Name the endpoint a request is recorded under
+     */
+    public static Request.Builder endpoint(Request.Builder request, String endpoint) {
+        return request.tag(EndpointTag.class, new EndpointTag(endpoint));
+    }
+
+    private static String endpointOf(Request request) {
+        EndpointTag tag = request.tag(EndpointTag.class);
+        return tag != null ? tag.name : ENDPOINT_OTHER;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = endpointOf(request);
+        RequestBody body = request.body();
+        if (body != null && body.contentLength() >= 0) {
+            bytes(endpoint, "out").record(body.contentLength());
+        }
+
+        long started = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            requests(endpoint, "IO_ERROR").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        requests(endpoint, String.valueOf(response.code())).record(System.nanoTime() - started,
+                TimeUnit.NANOSECONDS);
+        String contentLength = response.header("Content-Length");
+        if (contentLength != null) {
+            try {
+                bytes(endpoint, "in").record(Long.parseLong(contentLength));
+            } catch (NumberFormatException e) {
+                // Not counted
+            }
+        }
+        return response;
+    }
+
+    private Timer requests(String endpoint, String status) {
+        return Timer.builder(PREFIX + "api.requests").description("HTTP calls to the Comfort Cloud services")
+                .tags(accountTags).tag("endpoint", endpoint).tag("status", status).publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private DistributionSummary bytes(String endpoint, String direction) {
+        return DistributionSummary.builder(PREFIX + "api.bytes").baseUnit("bytes").tags(accountTags)
+                .tag("endpoint", endpoint).tag("direction", direction).register(registry);
+    }
+
+    /**
+     * Count an error code returned by the API, ie 4106 when a new app version is required
+     */
+    public void apiError(String endpoint, int code) {
+        Counter.builder(PREFIX + "api.errors").tags(accountTags).tag("endpoint", endpoint)
+                .tag("code", String.valueOf(code)).register(registry).increment();
+    }
+
+    /**
+     * Count a login or token refresh
+     *
+     * @param operation {@link #AUTH_LOGIN} or {@link #AUTH_REFRESH}
+     */
+    public void authentication(String operation, boolean success) {
+        Counter.builder(PREFIX + "auth").tags(accountTags).tag("operation", operation)
+                .tag("outcome", success ? "success" : "failure").register(registry).increment();
+    }
+
+    public void pollCycle(PollCycleResult result) {
+        Timer.builder(PREFIX + "poll.cycle").description("Device poll cycles").tags(accountTags).register(registry)
+                .record(result.getDurationMillis(), TimeUnit.MILLISECONDS);
+        Counter.builder(PREFIX + "poll.devices").tags(accountTags).tag("outcome", "polled").register(registry)
+                .increment(result.getPolled());
+        Counter.builder(PREFIX + "poll.devices").tags(accountTags).tag("outcome", "failed").register(registry)
+                .increment(result.getFailed());
+    }
+
+    /**
+     * Monitor the number of tasks waiting in a queue
+     *
+     * @return the gauge, to be passed to {@link #remove(Meter)} when no longer relevant
+     */
+    public Meter queueDepth(String queue, Supplier<Number> depth) {
+        return Gauge.builder(PREFIX + "queue.depth", depth).tags(accountTags).tag("queue", queue).register(registry);
+    }
+
+    /**
+     * Monitor the seconds elapsed since the server last reported a state change of a device
+     *
+     * @return the gauge, to be passed to {@link #remove(Meter)} when the device is disposed
+     */
+    public Meter deviceStaleness(String deviceId, Supplier<@Nullable Instant> lastUpdated) {
+        return Gauge.builder(PREFIX + "device.staleness", () -> secondsSince(lastUpdated.get())).baseUnit("seconds")
+                .tags(accountTags).tag("device", deviceId).register(registry);
+    }
+
+    private static double secondsSince(@Nullable Instant instant) {
+        return instant == null ? Double.NaN : Duration.between(instant, Instant.now()).toMillis() / 1000.0;
+    }
+
+    public void remove(Meter meter) {
+        registry.remove(meter);
+    }
+
+    private static final class EndpointTag {
+        private final String name;
+
+        private EndpointTag(String name) {
+            this.name = name;
+        }
+    }
+}
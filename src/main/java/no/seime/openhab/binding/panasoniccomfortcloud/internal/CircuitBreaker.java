@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Circuit breaker for one API endpoint. After {@link #getFailureThreshold()} consecutive transient failures the circuit
+ * opens and requests are rejected without being sent. Once the backoff has elapsed a single probe request is let
+ * through (half open): success closes the circuit, failure opens it again with twice the backoff, up to the maximum.
+ * Backoffs are jittered between half and all of their nominal length, so that accounts do not retry in lockstep. A
+ * probe that has not reported its outcome within {@link #PROBE_TIMEOUT} is considered lost, and the next request is
+ * let through as a new probe.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final int DEFAULT_BASE_BACKOFF_SECONDS = 30;
+    public static final int DEFAULT_MAX_BACKOFF_SECONDS = 30 * 60;
+    // Well above the time a request, or a login with its redirects, may take before timing out
+    static final Duration PROBE_TIMEOUT = Duration.ofMinutes(2);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String endpoint;
+    private final int failureThreshold;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final LongSupplier clock;
+    private final DoubleSupplier random;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int consecutiveOpenings;
+    private long openUntil;
+    private long probeStarted;
+
+    public CircuitBreaker(String endpoint, int failureThreshold, Duration baseBackoff, Duration maxBackoff) {
+        this(endpoint, failureThreshold, baseBackoff, maxBackoff, System::nanoTime,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param clock nanosecond time source
+     * @param random source of jitter in the range [0, 1)
+     */
+    CircuitBreaker(String endpoint, int failureThreshold, Duration baseBackoff, Duration maxBackoff, LongSupplier clock,
+            DoubleSupplier random) {
+        this.endpoint = endpoint;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos = Math.max(baseBackoffNanos, maxBackoff.toNanos());
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * Ask permission to send a request. Every permitted request must be followed by a call to
+     * {@link #recordSuccess()} or {@link #recordFailure()}.
+     *
+     * @return true if the request may be sent, false if the circuit is open or a probe is already in flight
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openUntil >= 0) {
+                    state = State.HALF_OPEN;
+                    probeStarted = clock.getAsLong();
+                    return true;
+                }
+                return false;
+            default:
+                if (clock.getAsLong() - probeStarted >= PROBE_TIMEOUT.toNanos()) {
+                    // The probe never reported back, ie its future was abandoned. Let this request probe instead.
+                    probeStarted = clock.getAsLong();
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    /**
+     * The service responded, close the circuit
+     *
+     * @return true if the circuit was not closed before
+     */
+    public synchronized boolean recordSuccess() {
+        boolean recovered = state != State.CLOSED;
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        consecutiveOpenings = 0;
+        return recovered;
+    }
+
+    /**
+     * The request failed in a way that is likely to affect the following requests as well, ie a network error or a
+     * server error
+     *
+     * @return true if the circuit opened as a result
+     */
+    public synchronized boolean recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            open();
+            return true;
+        }
+        return false;
+    }
+
+    private void open() {
+        consecutiveOpenings++;
+        // Cap the exponent well before overflow, the maximum is reached long before anyway
+        long nominal = baseBackoffNanos << Math.min(consecutiveOpenings - 1, 30);
+        if (nominal <= 0 || nominal > maxBackoffNanos) {
+            nominal = maxBackoffNanos;
+        }
+        long backoff = nominal / 2 + (long) (random.getAsDouble() * (nominal / 2));
+        openUntil = clock.getAsLong() + backoff;
+        state = State.OPEN;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return time until the next probe is let through, zero unless open
+     */
+    public synchronized Duration getRemainingBackoff() {
+        return state == State.OPEN ? Duration.ofNanos(Math.max(0, openUntil - clock.getAsLong())) : Duration.ZERO;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" + "endpoint='" + endpoint + '\'' + ", state=" + state + ", consecutiveFailures="
+                + consecutiveFailures + ", remainingBackoff=" + getRemainingBackoff().toSeconds() + "s}";
+    }
+}
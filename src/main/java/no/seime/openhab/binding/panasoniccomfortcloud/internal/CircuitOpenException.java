@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.time.Duration;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link CircuitOpenException} is raised when a request is not sent because the circuit of its endpoint is open
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class CircuitOpenException extends CommunicationException {
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryIn;
+
+    public CircuitOpenException(String endpoint, Duration retryIn) {
+        super("Service unavailable for " + endpoint + ", retrying in " + retryIn.toSeconds() + " seconds");
+        this.retryIn = retryIn;
+    }
+
+    public Duration getRetryIn() {
+        return retryIn;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Response from {@link ApiBridge#sendRequestIfChanged}. The decoded response is only present if the fingerprint
+ * differed from the previous one.
+ *
+ * @author agent - Initial contribution
+ */
+public class FingerprintedResponse<T> {
+    private final ResponseFingerprint fingerprint;
+    private final @Nullable T response;
+
+    public FingerprintedResponse(ResponseFingerprint fingerprint, @Nullable T response) {
+        this.fingerprint = fingerprint;
+        this.response = response;
+    }
+
+    public ResponseFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the decoded response, or null if the body was unchanged since the previous request
+     */
+    public @Nullable T getResponse() {
+        return response;
+    }
+
+    public boolean isChanged() {
+        return response != null;
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Supplies the HTTP client used by {@link ApiBridge}. Implementations may add a proxy, interceptors or trust material,
+ * and are expected to honour the connection pool and dispatcher settings of the given {@link TransportProfile}.
+ * Timeouts, redirect handling, cookies and logging are set by {@link ApiBridge} on top of the returned builder.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+@FunctionalInterface
+public interface OkHttpClientFactory {
+
+    /**
+     * Gives every client its own connection pool and dispatcher, released together with the client. For clients that
+     * live outside of a {@link SharedTransport}, ie in tools and tests.
+     */
+    OkHttpClientFactory UNSHARED = SharedTransport::newUnsharedBuilder;
+
+    /**
+     * @return a new client builder, not shared with other callers
+     */
+    OkHttpClient.Builder newBuilder(TransportProfile profile);
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Computes the <code>x-cfc-api-key</code> request header: SHA-256 over app name, app secret, timestamp in millis and
+ * bearer token, hex encoded with <code>cfc</code> inserted after the 9th character.
+ * <p>
+ * The digest state after the constant app name and secret is computed once per thread and cloned for every signature.
+ * Since the timestamp has second resolution, the last signature is cached and reused for requests sent within the
+ * same second with the same token. Safe for concurrent use.
+ *
+ * @author agent - Initial contribution
+ */
+public class RequestSigner {
+    private static final byte[] PREFIX = ("Comfort Cloud" + "521325fb2dd486bf4831b47644317fca")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BEARER = "Bearer ".getBytes(StandardCharsets.UTF_8);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] MARKER = "cfc".toCharArray();
+    private static final int MARKER_POSITION = 9;
+    private static final int SIGNATURE_LENGTH = 64 + MARKER.length;
+    // Enough for any positive long
+    private static final int MAX_DIGITS = 19;
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private volatile @Nullable Signature lastSignature;
+    private volatile @Nullable EncodedToken lastToken;
+
+    public String sign(Instant timestamp, String accessToken) {
+        long epochSecond = timestamp.getEpochSecond();
+        Signature cached = lastSignature;
+        if (cached != null && cached.epochSecond == epochSecond && cached.accessToken.equals(accessToken)) {
+            return cached.value;
+        }
+
+        Workspace workspace = WORKSPACE.get();
+        MessageDigest digest = workspace.primedDigest();
+        int digits = workspace.writeDigits(epochSecond * 1000);
+        digest.update(workspace.digits, MAX_DIGITS - digits, digits);
+        digest.update(BEARER);
+        digest.update(encode(accessToken));
+
+        String value = workspace.toSignature(digest.digest());
+        lastSignature = new Signature(epochSecond, accessToken, value);
+        return value;
+    }
+
+    private byte[] encode(String accessToken) {
+        EncodedToken encoded = lastToken;
+        if (encoded == null || !encoded.accessToken.equals(accessToken)) {
+            encoded = new EncodedToken(accessToken);
+            lastToken = encoded;
+        }
+        return encoded.bytes;
+    }
+
+    private static class Workspace {
+        private final MessageDigest prefixDigest;
+        private final byte[] digits = new byte[MAX_DIGITS];
+        private final char[] signature = new char[SIGNATURE_LENGTH];
+
+        Workspace() {
+            prefixDigest = newDigest();
+            prefixDigest.update(PREFIX);
+        }
+
+        MessageDigest primedDigest() {
+            try {
+                return (MessageDigest) prefixDigest.clone();
+            } catch (CloneNotSupportedException e) {
+                MessageDigest digest = newDigest();
+                digest.update(PREFIX);
+                return digest;
+            }
+        }
+
+        /**
+         * Write the decimal digits of a non-negative value right-aligned into the digit buffer
+         *
+         * @return number of digits written
+         */
+        int writeDigits(long value) {
+            int position = MAX_DIGITS;
+            long remaining = value;
+            do {
+                digits[--position] = (byte) ('0' + remaining % 10);
+                remaining /= 10;
+            } while (remaining > 0);
+            return MAX_DIGITS - position;
+        }
+
+        String toSignature(byte[] hash) {
+            int position = 0;
+            for (int nibble = 0; nibble < hash.length * 2; nibble++) {
+                if (nibble == MARKER_POSITION) {
+                    System.arraycopy(MARKER, 0, signature, position, MARKER.length);
+                    position += MARKER.length;
+                }
+                int b = hash[nibble >> 1];
+                signature[position++] = HEX[(nibble & 1) == 0 ? (b >> 4) & 0x0f : b & 0x0f];
+            }
+            return new String(signature);
+        }
+
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class Signature {
+        private final long epochSecond;
+        private final String accessToken;
+        private final String value;
+
+        Signature(long epochSecond, String accessToken, String value) {
+            this.epochSecond = epochSecond;
+            this.accessToken = accessToken;
+            this.value = value;
+        }
+    }
+
+    private static class EncodedToken {
+        private final String accessToken;
+        private final byte[] bytes;
+
+        EncodedToken(String accessToken) {
+            this.accessToken = accessToken;
+            this.bytes = accessToken.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
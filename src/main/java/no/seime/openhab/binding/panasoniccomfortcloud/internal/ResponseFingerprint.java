@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Streaming 64 bit FNV-1a fingerprint of a raw JSON response body. The values of volatile fields (currently only
+ * <code>timestamp</code>) are left out of the hash, so two snapshots of a device that only differ in when they were
+ * taken produce the same fingerprint. The body is scanned byte by byte without decoding or allocating anything, the
+ * scanner only knows enough JSON to tell keys, strings and scalar values apart.
+ *
+ * @author agent - Initial contribution
+ */
+public class ResponseFingerprint {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final byte[] TIMESTAMP_FIELD = "timestamp".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int NORMAL = 0;
+    private static final int IN_STRING = 1;
+    private static final int AFTER_STRING = 2;
+    private static final int BEFORE_VOLATILE_VALUE = 3;
+    private static final int IN_VOLATILE_SCALAR = 4;
+    private static final int IN_VOLATILE_STRING = 5;
+
+    private long hash = FNV_OFFSET_BASIS;
+    private int state = NORMAL;
+    private boolean escaped;
+    private final byte[] stringPrefix = new byte[TIMESTAMP_FIELD.length + 1];
+    private int stringLength;
+    private long timestamp;
+    private boolean timestampSeen;
+
+    public static ResponseFingerprint of(byte[] body) {
+        return new ResponseFingerprint().update(body, 0, body.length);
+    }
+
+    public ResponseFingerprint update(byte[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            update(buffer[i]);
+        }
+        return this;
+    }
+
+    private void update(byte b) {
+        switch (state) {
+            case IN_STRING:
+                hash(b);
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    state = AFTER_STRING;
+                    return;
+                }
+                if (stringLength < stringPrefix.length) {
+                    stringPrefix[stringLength] = b;
+                }
+                stringLength++;
+                return;
+            case AFTER_STRING:
+                if (isWhitespace(b)) {
+                    return;
+                }
+                if (b == ':' && isVolatileField()) {
+                    hash(b);
+                    state = BEFORE_VOLATILE_VALUE;
+                    return;
+                }
+                state = NORMAL;
+                break;
+            case BEFORE_VOLATILE_VALUE:
+                if (isWhitespace(b)) {
+                    return;
+                }
+                if (b == '"') {
+                    state = IN_VOLATILE_STRING;
+                } else {
+                    state = IN_VOLATILE_SCALAR;
+                    timestamp = 0;
+                    timestampSeen = true;
+                    accumulateTimestamp(b);
+                }
+                return;
+            case IN_VOLATILE_SCALAR:
+                if (b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                    state = NORMAL;
+                    break;
+                }
+                accumulateTimestamp(b);
+                return;
+            case IN_VOLATILE_STRING:
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    state = NORMAL;
+                }
+                return;
+            default:
+                break;
+        }
+
+        // NORMAL
+        hash(b);
+        if (b == '"') {
+            state = IN_STRING;
+            stringLength = 0;
+        }
+    }
+
+    private boolean isVolatileField() {
+        if (stringLength != TIMESTAMP_FIELD.length) {
+            return false;
+        }
+        for (int i = 0; i < stringLength; i++) {
+            if (stringPrefix[i] != TIMESTAMP_FIELD[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void accumulateTimestamp(byte b) {
+        if (b >= '0' && b <= '9') {
+            timestamp = timestamp * 10 + (b - '0');
+        }
+    }
+
+    private void hash(byte b) {
+        hash ^= (b & 0xff);
+        hash *= FNV_PRIME;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    public long getValue() {
+        return hash;
+    }
+
+    /**
+     * @return the numeric value of the excluded <code>timestamp</code> field, if present in the body
+     */
+    public @Nullable Long getTimestamp() {
+        return timestampSeen ? timestamp : null;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * {@link OkHttpClientFactory} sharing one connection pool and dispatcher per {@link TransportProfile}. All clients of
+ * all accounts using the same profile, login clients included, reuse the same warm TLS connections, and the per host
+ * request limit applies to them together.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class SharedTransport implements OkHttpClientFactory {
+
+    private final Map<TransportProfile, Transport> transports = new ConcurrentHashMap<>();
+
+    @Override
+    public OkHttpClient.Builder newBuilder(TransportProfile profile) {
+        return newBuilder(profile, transports.computeIfAbsent(profile, Transport::new));
+    }
+
+    /**
+     * @return a builder with a connection pool and dispatcher of its own
+     */
+    static OkHttpClient.Builder newUnsharedBuilder(TransportProfile profile) {
+        return newBuilder(profile, new Transport(profile));
+    }
+
+    private static OkHttpClient.Builder newBuilder(TransportProfile profile, Transport transport) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder().connectionPool(transport.connectionPool)
+                .dispatcher(transport.dispatcher);
+        if (!profile.isHttp2()) {
+            builder.protocols(List.of(Protocol.HTTP_1_1));
+        }
+        return builder;
+    }
+
+    /**
+     * Close idle connections and stop the dispatcher threads. Clients created earlier can not be used afterwards, so
+     * call only once all accounts are disposed.
+     */
+    public void shutdown() {
+        transports.values().forEach(t -> {
+            t.dispatcher.executorService().shutdown();
+            t.connectionPool.evictAll();
+        });
+        transports.clear();
+    }
+
+    private static class Transport {
+        private final ConnectionPool connectionPool;
+        private final Dispatcher dispatcher;
+
+        Transport(TransportProfile profile) {
+            connectionPool = new ConnectionPool(profile.getMaxIdleConnections(), profile.getKeepAliveSeconds(),
+                    TimeUnit.SECONDS);
+            dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(profile.getMaxRequests());
+            dispatcher.setMaxRequestsPerHost(profile.getMaxRequestsPerHost());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.config.AccountConfiguration;
+
+/**
+ * Connection pool and dispatcher settings of the HTTP transport. Accounts with equal profiles share the same
+ * connection pool and dispatcher, see {@link SharedTransport}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public final class TransportProfile {
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 300;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 8;
+
+    public static final TransportProfile DEFAULT = new TransportProfile(DEFAULT_MAX_IDLE_CONNECTIONS,
+            DEFAULT_KEEP_ALIVE_SECONDS, DEFAULT_MAX_REQUESTS, DEFAULT_MAX_REQUESTS_PER_HOST, true);
+
+    private final int maxIdleConnections;
+    private final int keepAliveSeconds;
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    private final boolean http2;
+
+    public TransportProfile(int maxIdleConnections, int keepAliveSeconds, int maxRequests, int maxRequestsPerHost,
+            boolean http2) {
+        this.maxIdleConnections = Math.max(0, maxIdleConnections);
+        this.keepAliveSeconds = Math.max(1, keepAliveSeconds);
+        this.maxRequests = Math.max(1, maxRequests);
+        this.maxRequestsPerHost = Math.max(1, Math.min(maxRequestsPerHost, this.maxRequests));
+        this.http2 = http2;
+    }
+
+    public static TransportProfile of(AccountConfiguration config) {
+        return new TransportProfile(config.maxIdleConnections, config.keepAlive, DEFAULT_MAX_REQUESTS,
+                config.maxRequestsPerHost, config.http2);
+    }
+
+    /**
+     * @return idle connections kept open for reuse
+     */
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    /**
+     * @return seconds an idle connection is kept open. Should exceed the refresh interval for polls to reuse warm
+     *         connections.
+     */
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * @return true to negotiate HTTP/2 where the server supports it, false for HTTP/1.1 only
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TransportProfile that = (TransportProfile) o;
+        return maxIdleConnections == that.maxIdleConnections && keepAliveSeconds == that.keepAliveSeconds
+                && maxRequests == that.maxRequests && maxRequestsPerHost == that.maxRequestsPerHost
+                && http2 == that.http2;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxIdleConnections, keepAliveSeconds, maxRequests, maxRequestsPerHost, http2);
+    }
+
+    @Override
+    public String toString() {
+        return "TransportProfile{" + "maxIdleConnections=" + maxIdleConnections + ", keepAliveSeconds="
+                + keepAliveSeconds + ", maxRequests=" + maxRequests + ", maxRequestsPerHost=" + maxRequestsPerHost
+                + ", http2=" + http2 + '}';
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DtoTypeAdapters;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.ErrorResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.SetDevicePropertiesResponse;
+
+/**
+ * The {@link WireCodec} holds the JSON mapping used on the wire: a compact (not pretty printed) {@link Gson} with the
+ * hand-written {@link DtoTypeAdapters}, the resolved response types, and a cache of their adapters.
+ *
+ * @author agent - Initial contribution
+ */
+public final class WireCodec {
+    public static final Type GET_GROUPS_RESPONSE = GetGroupsResponse.class;
+    public static final Type DEVICE = DeviceDTO.class;
+    public static final Type SET_DEVICE_PROPERTIES_RESPONSE = SetDevicePropertiesResponse.class;
+    public static final Type ERROR_RESPONSE = ErrorResponse.class;
+
+    public static final Gson GSON = new GsonBuilder().setLenient().registerTypeAdapterFactory(DtoTypeAdapters.FACTORY)
+            .create();
+
+    private static final Map<Type, TypeAdapter<?>> ADAPTERS = new ConcurrentHashMap<>();
+    static {
+        for (Type type : new Type[] { GET_GROUPS_RESPONSE, DEVICE, SET_DEVICE_PROPERTIES_RESPONSE, ERROR_RESPONSE }) {
+            adapterFor(type);
+        }
+    }
+
+    private WireCodec() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> TypeAdapter<T> adapterFor(Type type) {
+        return (TypeAdapter<T>) ADAPTERS.computeIfAbsent(type, t -> GSON.getAdapter(TypeToken.get(t)));
+    }
+}
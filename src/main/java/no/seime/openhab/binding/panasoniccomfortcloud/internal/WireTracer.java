@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.GzipSource;
+
+/**
+ * Traces HTTP traffic to the debug log. The level can be changed at any time, and tracing only happens while the
+ * logger of this class has debug enabled - otherwise requests pass straight through and no event listener is
+ * attached to the call.
+ * <ul>
+ * <li>{@link Level#BASIC}: request line, response status and per call timing (DNS, connect, TLS, time to first byte
+ * and total)</li>
+ * <li>{@link Level#HEADERS}: as BASIC, plus request and response headers</li>
+ * <li>{@link Level#BODY}: as HEADERS, plus the first {@link #MAX_BODY_BYTES} bytes of textual request and response
+ * bodies</li>
+ * </ul>
+ * Tokens, passwords, cookies and authorization codes are redacted from URLs, headers and bodies.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class WireTracer implements Interceptor {
+
+    public enum Level {
+        NONE,
+        BASIC,
+        HEADERS,
+        BODY
+    }
+
+    static final int MAX_BODY_BYTES = 4096;
+    static final String REDACTED = "<REDACTED>";
+
+    private static final Set<String> SECRET_HEADERS = Set.of("authorization", "cookie", "set-cookie",
+            "x-user-authorization-v2", "x-cfc-api-key", "x-client-id");
+    private static final String SECRET_NAMES = "password|access_token|refresh_token|id_token|code|code_verifier"
+            + "|_csrf|state|wresult|clientId";
+    private static final Pattern SECRET_JSON_FIELD = Pattern
+            .compile("(\"(?:" + SECRET_NAMES + ")\"\\s*:\\s*\")[^\"]*(\")");
+    // Form bodies as well as query strings of URLs and Location headers
+    private static final Pattern SECRET_FORM_FIELD = Pattern.compile("((?:^|[?&])(?:" + SECRET_NAMES + ")=)[^&]*");
+
+    private final Logger logger = LoggerFactory.getLogger(WireTracer.class);
+    private volatile Level level;
+
+    public WireTracer(Level level) {
+        this.level = level;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    private Level effectiveLevel() {
+        Level current = level;
+        return current != Level.NONE && logger.isDebugEnabled() ? current : Level.NONE;
+    }
+
+    /**
+     * Factory for {@link okhttp3.OkHttpClient.Builder#eventListenerFactory(EventListener.Factory)}, timing calls
+     * created while tracing is enabled
+     */
+    public EventListener eventListener(Call call) {
+        return effectiveLevel() == Level.NONE ? EventListener.NONE : new CallTimer();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Level current = effectiveLevel();
+        if (current == Level.NONE) {
+            return chain.proceed(request);
+        }
+
+        logger.debug("--> {} {}", request.method(), redact(request.url()));
+        if (current != Level.BASIC) {
+            logHeaders("-->", request.headers());
+        }
+        RequestBody requestBody = request.body();
+        if (current == Level.BODY && requestBody != null) {
+            logger.debug("--> body: {}", sampleRequestBody(requestBody));
+        }
+
+        long started = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            logger.debug("<-- {} {} failed: {}", request.method(), redact(request.url()), e.getMessage());
+            throw e;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        logger.debug("<-- {} {} {} ({} ms)", response.code(), request.method(), redact(request.url()), millis);
+        if (current != Level.BASIC) {
+            logHeaders("<--", response.headers());
+        }
+        if (current == Level.BODY) {
+            logger.debug("<-- body: {}", sampleResponseBody(response));
+        }
+        return response;
+    }
+
+    private void logHeaders(String direction, Headers headers) {
+        for (int i = 0; i < headers.size(); i++) {
+            String name = headers.name(i);
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            String value = SECRET_HEADERS.contains(lowerCaseName) ? REDACTED
+                    : "location".equals(lowerCaseName) ? redact(headers.value(i)) : headers.value(i);
+            logger.debug("{} {}: {}", direction, name, value);
+        }
+    }
+
+    private String sampleRequestBody(RequestBody body) throws IOException {
+        if (!isText(body.contentType())) {
+            return "<" + body.contentLength() + " byte body omitted>";
+        }
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return sample(buffer, false);
+    }
+
+    private String sampleResponseBody(Response response) throws IOException {
+        if (response.body() == null || !isText(response.body().contentType())) {
+            return "<body omitted>";
+        }
+        // Peek rather than read, so the caller still gets the full body
+        byte[] raw = response.peekBody(MAX_BODY_BYTES).bytes();
+        boolean truncated = raw.length == MAX_BODY_BYTES;
+        String encoding = response.header("Content-Encoding");
+        if (encoding == null || "identity".equalsIgnoreCase(encoding)) {
+            return sample(new Buffer().write(raw), truncated);
+        } else if ("gzip".equalsIgnoreCase(encoding)) {
+            Buffer decoded = new Buffer();
+            try (GzipSource gzip = new GzipSource(new Buffer().write(raw))) {
+                while (decoded.size() < MAX_BODY_BYTES && gzip.read(decoded, MAX_BODY_BYTES) != -1) {
+                    // Keep reading until the sample is complete
+                }
+            } catch (IOException e) {
+                // The peeked sample may end mid stream, keep what could be decoded
+            }
+            return sample(decoded, truncated);
+        }
+        return "<" + encoding + " encoded body omitted>";
+    }
+
+    private static String sample(Buffer buffer, boolean truncated) {
+        long size = buffer.size();
+        String text = buffer.readUtf8(Math.min(size, MAX_BODY_BYTES));
+        return redact(text) + (truncated || size > MAX_BODY_BYTES ? "..." : "");
+    }
+
+    private static boolean isText(@Nullable MediaType contentType) {
+        // HTML from the login pages carries session state in hidden fields, and is never logged
+        return contentType != null && ("json".equals(contentType.subtype())
+                || "x-www-form-urlencoded".equals(contentType.subtype()) || "plain".equals(contentType.subtype()));
+    }
+
+    private static String redact(HttpUrl url) {
+        return redact(url.toString());
+    }
+
+    /**
+     * @return the text with the values of secret JSON and form fields replaced
+     */
+    static String redact(String text) {
+        Matcher json = SECRET_JSON_FIELD.matcher(text);
+        String redacted = json.replaceAll("$1" + REDACTED + "$2");
+        return SECRET_FORM_FIELD.matcher(redacted).replaceAll("$1" + REDACTED);
+    }
+
+    /**
+     * Records the phases of a single call and logs them when it ends
+     */
+    private class CallTimer extends EventListener {
+        private final long callStart = System.nanoTime();
+        private long dnsStart;
+        private long dnsMillis = -1;
+        private long connectStart;
+        private long connectMillis = -1;
+        private long secureConnectStart;
+        private long tlsMillis = -1;
+        private long ttfbMillis = -1;
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            dnsMillis = millisSince(dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, @Nullable Handshake handshake) {
+            tlsMillis = millisSince(secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                @Nullable Protocol protocol) {
+            connectMillis = millisSince(connectStart);
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            if (ttfbMillis < 0) {
+                ttfbMillis = millisSince(callStart);
+            }
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            log(call, "completed");
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            log(call, "failed");
+        }
+
+        private void log(Call call, String outcome) {
+            // DNS, connect and TLS are -1 when a pooled connection was reused
+            logger.debug("{} {} {}: dns {} ms, connect {} ms, tls {} ms, ttfb {} ms, total {} ms",
+                    call.request().method(), redact(call.request().url()), outcome, dnsMillis, connectMillis,
+                    tlsMillis, ttfbMillis, millisSince(callStart));
+        }
+
+        private long millisSince(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos);
+        }
+    }
+}
@@ -14,6 +14,11 @@ package no.seime.openhab.binding.panasoniccomfortcloud.internal.config;
 
 import org.openhab.core.config.core.Configuration;
 
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiBridge;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.CircuitBreaker;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.TransportProfile;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.DeviceStatusCache;
+
 /**
  * The {@link AccountConfiguration} class contains fields mapping thing configuration parameters.
  *
@@ -25,10 +30,36 @@ public class AccountConfiguration extends Configuration {
     public String password;
     public String appVersion = null;
     public int refreshInterval = 120;
+    public int maxRefreshInterval = 900;
+    public int pollParallelism = 4;
+    public int maxRequestsPerMinute = 60;
+    public int deviceStatusCacheTtl = DeviceStatusCache.DEFAULT_TTL_SECONDS;
+    public String accBaseUrl = ApiBridge.DEFAULT_ACC_BASE_URL;
+    public String authBaseUrl = ApiBridge.DEFAULT_AUTH_BASE_URL;
+    public String appVersionUrl = ApiBridge.DEFAULT_APP_VERSION_URL;
+    public int connectTimeout = ApiBridge.DEFAULT_CONNECT_TIMEOUT_SECONDS;
+    public int readTimeout = ApiBridge.DEFAULT_READ_TIMEOUT_SECONDS;
+    public int maxIdleConnections = TransportProfile.DEFAULT_MAX_IDLE_CONNECTIONS;
+    public int keepAlive = TransportProfile.DEFAULT_KEEP_ALIVE_SECONDS;
+    public int maxRequestsPerHost = TransportProfile.DEFAULT_MAX_REQUESTS_PER_HOST;
+    public boolean http2 = true;
+    public String wireTrace = "BASIC";
+    public int circuitFailureThreshold = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+    public int circuitBaseBackoff = CircuitBreaker.DEFAULT_BASE_BACKOFF_SECONDS;
+    public int circuitMaxBackoff = CircuitBreaker.DEFAULT_MAX_BACKOFF_SECONDS;
 
     @Override
     public String toString() {
         return "AccountConfiguration{" + "appVersion='" + appVersion + '\'' + ", password='<REDACTED>'"
-                + ", refreshInterval=" + refreshInterval + ", username='" + username + '\'' + '}';
+                + ", refreshInterval=" + refreshInterval + ", maxRefreshInterval=" + maxRefreshInterval
+                + ", pollParallelism=" + pollParallelism
+                + ", maxRequestsPerMinute=" + maxRequestsPerMinute + ", deviceStatusCacheTtl=" + deviceStatusCacheTtl
+                + ", accBaseUrl='" + accBaseUrl + '\''
+                + ", authBaseUrl='" + authBaseUrl + '\'' + ", appVersionUrl='" + appVersionUrl + '\''
+                + ", connectTimeout=" + connectTimeout + ", readTimeout=" + readTimeout + ", maxIdleConnections="
+                + maxIdleConnections + ", keepAlive=" + keepAlive + ", maxRequestsPerHost=" + maxRequestsPerHost
+                + ", http2=" + http2 + ", wireTrace='" + wireTrace + '\'' + ", circuitFailureThreshold="
+                + circuitFailureThreshold + ", circuitBaseBackoff=" + circuitBaseBackoff + ", circuitMaxBackoff="
+                + circuitMaxBackoff + ", username='" + username + '\'' + '}';
     }
 }
@@ -23,8 +23,19 @@ public class AirConditionerConfiguration {
      */
     public String deviceId;
 
+    /*
+     * Milliseconds to wait for further commands before sending merged parameters to the device
+     */
+    public int commandDebounce = 250;
+
+    /*
+     * Seconds the last known state is kept when the device cannot be refreshed
+     */
+    public int maxStaleness = 900;
+
     @Override
     public String toString() {
-        return "AirConditionerConfiguration{" + "deviceId='" + deviceId + '\'' + '}';
+        return "AirConditionerConfiguration{" + "deviceId='" + deviceId + '\'' + ", commandDebounce=" + commandDebounce
+                + ", maxStaleness=" + maxStaleness + '}';
     }
 }
@@ -63,38 +63,38 @@ public class PanasonicComfortCloudDiscoveryService extends AbstractDiscoveryServ
     @Override
     protected void startScan() {
         logger.debug("Start scan for Panasonic Comfort Cloud devices.");
-        synchronized (this) {
-            // REMOVED FOR NOW, NOT COMPATIBLE WITH OH5.
-            // removeOlderResults(getTimestampOfLastScan(), null, accountHandler.getThing().getUID());
-            final ThingUID accountUID = accountHandler.getThing().getUID();
-            accountHandler.doPoll(false);
-
-            List<Device> devices = accountHandler.getModel().getGroups().stream().flatMap(e -> e.getDevices().stream())
-                    .collect(Collectors.toList());
-
-            for (final Device device : devices) {
-                ThingTypeUID thingType = getThingType(device);
-                if (thingType != null) {
-
-                    final ThingUID thingUID = new ThingUID(thingType, accountUID,
-                            createCleanDeviceId(device.getDeviceId()));
-                    Map<String, String> properties = device.getThingProperties();
-
-                    // DiscoveryResult result uses Map<String,Object> as properties while ThingBuilder uses
-                    // Map<String,String>
-                    Map<String, Object> stringObjectProperties = new HashMap<>();
-                    stringObjectProperties.putAll(properties);
-
-                    final DiscoveryResult discoveryResult = DiscoveryResultBuilder.create(thingUID)
-                            .withBridge(accountUID)
-                            .withLabel(String.format("%s / %s", device.getGroup().getName(), device.getName()))
-                            .withRepresentationProperty("deviceId").withProperties(stringObjectProperties).build();
-                    thingDiscovered(discoveryResult);
-                } else {
-                    logger.debug(
-                            "Found device of type {} which is currently not supported (not known by the developer) - please report back",
-                            device.getType());
-                }
+        // REMOVED FOR NOW, NOT COMPATIBLE WITH OH5.
+        // removeOlderResults(getTimestampOfLastScan(), null, accountHandler.getThing().getUID());
+        final ThingUID accountUID = accountHandler.getThing().getUID();
+        // Served from the account's group listing when fresh, otherwise shares or starts a single refresh
+        accountHandler.refreshGroups().whenComplete((r, e) -> discoverDevices(accountUID));
+    }
+
+    private synchronized void discoverDevices(ThingUID accountUID) {
+        List<Device> devices = accountHandler.getModel().getGroups().stream().flatMap(e -> e.getDevices().stream())
+                .collect(Collectors.toList());
+
+        for (final Device device : devices) {
+            ThingTypeUID thingType = getThingType(device);
+            if (thingType != null) {
+
+                final ThingUID thingUID = new ThingUID(thingType, accountUID,
+                        createCleanDeviceId(device.getDeviceId()));
+                Map<String, String> properties = device.getThingProperties();
+
+                // DiscoveryResult result uses Map<String,Object> as properties while ThingBuilder uses
+                // Map<String,String>
+                Map<String, Object> stringObjectProperties = new HashMap<>();
+                stringObjectProperties.putAll(properties);
+
+                final DiscoveryResult discoveryResult = DiscoveryResultBuilder.create(thingUID).withBridge(accountUID)
+                        .withLabel(String.format("%s / %s", device.getGroup().getName(), device.getName()))
+                        .withRepresentationProperty("deviceId").withProperties(stringObjectProperties).build();
+                thingDiscovered(discoveryResult);
+            } else {
+                logger.debug(
+                        "Found device of type {} which is currently not supported (not known by the developer) - please report back",
+                        device.getType());
             }
         }
     }
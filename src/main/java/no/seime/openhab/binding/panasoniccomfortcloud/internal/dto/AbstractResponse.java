@@ -0,0 +1,26 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.dto;
+
+/**
+ * All classes in the .dto are data transfer classes used by the GSON mapper. This class reflects a
+ * part of a request/response data structure.
+ * <p>
+ * The server may answer with HTTP 200 and an error envelope carrying a <code>message</code> instead of the expected
+ * body. Mapping it onto the response class lets the envelope be detected while the body is decoded.
+ *
+ * @author agent - Initial contribution.
+ */
+public abstract class AbstractResponse {
+    public String message;
+}
@@ -19,7 +19,7 @@ package no.seime.openhab.binding.panasoniccomfortcloud.internal.dto;
  * @author Arne Seime - Initial contribution.
  */
 
-public class DeviceDTO {
+public class DeviceDTO extends AbstractResponse {
     public String deviceGuid;
     public String deviceType;
     public String deviceName;
@@ -0,0 +1,722 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.dto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Hand-written, reflection-free GSON type adapters for the classes in the .dto package. They read and write the same
+ * JSON as GSON's reflective adapters: unknown fields are skipped, null fields are left out when writing, numeric
+ * values are accepted for String fields (groupId is a number on the wire) and JSON null leaves primitive fields at
+ * their default.
+ *
+ * @author agent - Initial contribution
+ */
+public final class DtoTypeAdapters {
+    private static final TypeAdapter<ParametersDTO> PARAMETERS = new ParametersDTOAdapter();
+    private static final TypeAdapter<DeviceDTO> DEVICE = new DeviceDTOAdapter();
+    private static final TypeAdapter<GroupDTO> GROUP = new GroupAdapter();
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT = new Gson().getAdapter(JsonElement.class);
+
+    private static final Map<Class<?>, TypeAdapter<?>> ADAPTERS = new HashMap<>();
+    static {
+        ADAPTERS.put(GetGroupsResponse.class, new GetGroupsResponseAdapter());
+        ADAPTERS.put(GroupDTO.class, GROUP);
+        ADAPTERS.put(DeviceDTO.class, DEVICE);
+        ADAPTERS.put(ParametersDTO.class, PARAMETERS);
+        ADAPTERS.put(SetDevicePropertiesRequest.class, new SetDevicePropertiesRequestAdapter());
+        ADAPTERS.put(SetDevicePropertiesResponse.class, new SetDevicePropertiesResponseAdapter());
+        ADAPTERS.put(ErrorResponse.class, new ErrorResponseAdapter());
+        ADAPTERS.put(GetAccClientIdDTO.class, new GetAccClientIdDTOAdapter());
+        ADAPTERS.put(LoginRequestDTO.class, new LoginRequestDTOAdapter());
+    }
+
+    /**
+     * Factory to register with a {@link com.google.gson.GsonBuilder}. Other types fall through to GSON's own adapters.
+     */
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> @Nullable TypeAdapter<T> create(@Nullable Gson gson, @Nullable TypeToken<T> type) {
+            return type == null ? null : (TypeAdapter<T>) ADAPTERS.get(type.getRawType());
+        }
+    };
+
+    private DtoTypeAdapters() {
+    }
+
+    /**
+     * Reads and writes one JSON object, delegating known fields to the subclass
+     */
+    private abstract static class DtoAdapter<T> extends TypeAdapter<T> {
+        protected abstract T newInstance();
+
+        /**
+         * @return false if the field is unknown and must be skipped
+         */
+        protected abstract boolean readField(JsonReader in, String name, T dto) throws IOException;
+
+        protected abstract void writeFields(JsonWriter out, T dto) throws IOException;
+
+        @Override
+        public @Nullable T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            T dto = newInstance();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!readField(in, in.nextName(), dto)) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return dto;
+        }
+
+        @Override
+        public void write(JsonWriter out, @Nullable T dto) throws IOException {
+            if (dto == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeFields(out, dto);
+            out.endObject();
+        }
+    }
+
+    private static class GetGroupsResponseAdapter extends DtoAdapter<GetGroupsResponse> {
+        @Override
+        protected GetGroupsResponse newInstance() {
+            return new GetGroupsResponse();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, GetGroupsResponse dto) throws IOException {
+            switch (name) {
+                case "groupList":
+                    dto.groupList = readArray(in, GROUP, GroupDTO[]::new);
+                    break;
+                case "message":
+                    dto.message = nextString(in);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, GetGroupsResponse dto) throws IOException {
+            out.name("groupList");
+            writeArray(out, GROUP, dto.groupList);
+            out.name("message").value(dto.message);
+        }
+    }
+
+    private static class GroupAdapter extends DtoAdapter<GroupDTO> {
+        @Override
+        protected GroupDTO newInstance() {
+            return new GroupDTO();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, GroupDTO dto) throws IOException {
+            switch (name) {
+                case "groupId":
+                    // Numeric on the wire
+                    dto.groupId = nextString(in);
+                    break;
+                case "groupName":
+                    dto.groupName = nextString(in);
+                    break;
+                case "deviceList":
+                    dto.devices = readArray(in, DEVICE, DeviceDTO[]::new);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, GroupDTO dto) throws IOException {
+            out.name("groupId").value(dto.groupId);
+            out.name("groupName").value(dto.groupName);
+            out.name("deviceList");
+            writeArray(out, DEVICE, dto.devices);
+        }
+    }
+
+    private static class DeviceDTOAdapter extends DtoAdapter<DeviceDTO> {
+        @Override
+        protected DeviceDTO newInstance() {
+            return new DeviceDTO();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, DeviceDTO dto) throws IOException {
+            switch (name) {
+                case "deviceGuid":
+                    dto.deviceGuid = nextString(in);
+                    break;
+                case "deviceType":
+                    dto.deviceType = nextString(in);
+                    break;
+                case "deviceName":
+                    dto.deviceName = nextString(in);
+                    break;
+                case "permission":
+                    dto.permission = nextInteger(in);
+                    break;
+                case "deviceModuleNumber":
+                    dto.deviceModuleNumber = nextString(in);
+                    break;
+                case "deviceHashGuid":
+                    dto.deviceHashGuid = nextString(in);
+                    break;
+                case "summerHouse":
+                    dto.summerHouse = nextInteger(in);
+                    break;
+                case "iAutoX":
+                    dto.iAutoX = nextBoolean(in);
+                    break;
+                case "nanoe":
+                    dto.nanoe = nextBoolean(in);
+                    break;
+                case "nanoeStandAlone":
+                    dto.nanoeStandAlone = nextBoolean(in);
+                    break;
+                case "autoMode":
+                    dto.autoMode = nextBoolean(in);
+                    break;
+                case "heatMode":
+                    dto.heatMode = nextBoolean(in);
+                    break;
+                case "fanMode":
+                    dto.fanMode = nextBoolean(in);
+                    break;
+                case "dryMode":
+                    dto.dryMode = nextBoolean(in);
+                    break;
+                case "coolMode":
+                    dto.coolMode = nextBoolean(in);
+                    break;
+                case "ecoNavi":
+                    dto.ecoNavi = nextBoolean(in);
+                    break;
+                case "powerfulMode":
+                    dto.powerfulMode = nextBoolean(in);
+                    break;
+                case "quietMode":
+                    dto.quietMode = nextBoolean(in);
+                    break;
+                case "airSwingLR":
+                    dto.airSwingLR = nextBoolean(in);
+                    break;
+                case "autoSwingUD":
+                    dto.autoSwingUD = nextBoolean(in);
+                    break;
+                case "ecoFunction":
+                    dto.ecoFunction = nextInteger(in);
+                    break;
+                case "temperatureUnit":
+                    dto.temperatureUnit = nextInteger(in);
+                    break;
+                case "coordinableFlg":
+                    dto.coordinableFlg = nextBoolean(in);
+                    break;
+                case "pairedFlg":
+                    dto.pairedFlg = nextBoolean(in);
+                    break;
+                case "dryTempMin":
+                    dto.dryTempMin = nextInteger(in);
+                    break;
+                case "dryTempMax":
+                    dto.dryTempMax = nextInteger(in);
+                    break;
+                case "heatTempMin":
+                    dto.heatTempMin = nextInteger(in);
+                    break;
+                case "heatTempMax":
+                    dto.heatTempMax = nextInteger(in);
+                    break;
+                case "coolTempMin":
+                    dto.coolTempMin = nextInteger(in);
+                    break;
+                case "coolTempMax":
+                    dto.coolTempMax = nextInteger(in);
+                    break;
+                case "autoTempMin":
+                    dto.autoTempMin = nextInteger(in);
+                    break;
+                case "autoTempMax":
+                    dto.autoTempMax = nextInteger(in);
+                    break;
+                case "timestamp":
+                    dto.timestamp = nextLong(in);
+                    break;
+                case "parameters":
+                    dto.parameters = PARAMETERS.read(in);
+                    break;
+                case "message":
+                    dto.message = nextString(in);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, DeviceDTO dto) throws IOException {
+            out.name("deviceGuid").value(dto.deviceGuid);
+            out.name("deviceType").value(dto.deviceType);
+            out.name("deviceName").value(dto.deviceName);
+            out.name("permission").value(dto.permission);
+            out.name("deviceModuleNumber").value(dto.deviceModuleNumber);
+            out.name("deviceHashGuid").value(dto.deviceHashGuid);
+            out.name("summerHouse").value(dto.summerHouse);
+            out.name("iAutoX").value(dto.iAutoX);
+            out.name("nanoe").value(dto.nanoe);
+            out.name("nanoeStandAlone").value(dto.nanoeStandAlone);
+            out.name("autoMode").value(dto.autoMode);
+            out.name("heatMode").value(dto.heatMode);
+            out.name("fanMode").value(dto.fanMode);
+            out.name("dryMode").value(dto.dryMode);
+            out.name("coolMode").value(dto.coolMode);
+            out.name("ecoNavi").value(dto.ecoNavi);
+            out.name("powerfulMode").value(dto.powerfulMode);
+            out.name("quietMode").value(dto.quietMode);
+            out.name("airSwingLR").value(dto.airSwingLR);
+            out.name("autoSwingUD").value(dto.autoSwingUD);
+            out.name("ecoFunction").value(dto.ecoFunction);
+            out.name("temperatureUnit").value(dto.temperatureUnit);
+            out.name("coordinableFlg").value(dto.coordinableFlg);
+            out.name("pairedFlg").value(dto.pairedFlg);
+            out.name("dryTempMin").value(dto.dryTempMin);
+            out.name("dryTempMax").value(dto.dryTempMax);
+            out.name("heatTempMin").value(dto.heatTempMin);
+            out.name("heatTempMax").value(dto.heatTempMax);
+            out.name("coolTempMin").value(dto.coolTempMin);
+            out.name("coolTempMax").value(dto.coolTempMax);
+            out.name("autoTempMin").value(dto.autoTempMin);
+            out.name("autoTempMax").value(dto.autoTempMax);
+            out.name("timestamp").value(dto.timestamp);
+            out.name("parameters");
+            PARAMETERS.write(out, dto.parameters);
+            out.name("message").value(dto.message);
+        }
+    }
+
+    private static class ParametersDTOAdapter extends DtoAdapter<ParametersDTO> {
+        @Override
+        protected ParametersDTO newInstance() {
+            return new ParametersDTO();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, ParametersDTO dto) throws IOException {
+            switch (name) {
+                case "ecoFunctionData":
+                    dto.ecoFunctionData = nextInteger(in);
+                    break;
+                case "airSwingLR":
+                    dto.airSwingLR = nextInteger(in);
+                    break;
+                case "nanoe":
+                    dto.nanoe = nextInteger(in);
+                    break;
+                case "lastSettingMode":
+                    dto.lastSettingMode = nextInteger(in);
+                    break;
+                case "ecoNavi":
+                    dto.ecoNavi = nextInteger(in);
+                    break;
+                case "ecoMode":
+                    dto.ecoMode = nextInteger(in);
+                    break;
+                case "operationMode":
+                    dto.operationMode = nextInteger(in);
+                    break;
+                case "fanAutoMode":
+                    dto.fanAutoMode = nextInteger(in);
+                    break;
+                case "temperatureSet":
+                    dto.temperatureSet = nextDouble(in);
+                    break;
+                case "fanSpeed":
+                    dto.fanSpeed = nextInteger(in);
+                    break;
+                case "iAuto":
+                    dto.iAuto = nextInteger(in);
+                    break;
+                case "airQuality":
+                    dto.airQuality = nextInteger(in);
+                    break;
+                case "insideTemperature":
+                    dto.insideTemperature = nextInteger(in);
+                    break;
+                case "outTemperature":
+                    dto.outTemperature = nextInteger(in);
+                    break;
+                case "operate":
+                    dto.operate = nextInteger(in);
+                    break;
+                case "airDirection":
+                    dto.airDirection = nextInteger(in);
+                    break;
+                case "actualNanoe":
+                    dto.actualNanoe = nextInteger(in);
+                    break;
+                case "airSwingUD":
+                    dto.airSwingUD = nextInteger(in);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, ParametersDTO dto) throws IOException {
+            out.name("ecoFunctionData").value(dto.ecoFunctionData);
+            out.name("airSwingLR").value(dto.airSwingLR);
+            out.name("nanoe").value(dto.nanoe);
+            out.name("lastSettingMode").value(dto.lastSettingMode);
+            out.name("ecoNavi").value(dto.ecoNavi);
+            out.name("ecoMode").value(dto.ecoMode);
+            out.name("operationMode").value(dto.operationMode);
+            out.name("fanAutoMode").value(dto.fanAutoMode);
+            out.name("temperatureSet").value(dto.temperatureSet);
+            out.name("fanSpeed").value(dto.fanSpeed);
+            out.name("iAuto").value(dto.iAuto);
+            out.name("airQuality").value(dto.airQuality);
+            out.name("insideTemperature").value(dto.insideTemperature);
+            out.name("outTemperature").value(dto.outTemperature);
+            out.name("operate").value(dto.operate);
+            out.name("airDirection").value(dto.airDirection);
+            out.name("actualNanoe").value(dto.actualNanoe);
+            out.name("airSwingUD").value(dto.airSwingUD);
+        }
+    }
+
+    private static class SetDevicePropertiesRequestAdapter extends DtoAdapter<SetDevicePropertiesRequest> {
+        @Override
+        protected SetDevicePropertiesRequest newInstance() {
+            return new SetDevicePropertiesRequest(null, null);
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, SetDevicePropertiesRequest dto) throws IOException {
+            switch (name) {
+                case "deviceGuid":
+                    dto.deviceGuid = nextString(in);
+                    break;
+                case "parameters":
+                    dto.parameters = PARAMETERS.read(in);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, SetDevicePropertiesRequest dto) throws IOException {
+            out.name("deviceGuid").value(dto.deviceGuid);
+            out.name("parameters");
+            PARAMETERS.write(out, dto.parameters);
+        }
+    }
+
+    private static class SetDevicePropertiesResponseAdapter extends DtoAdapter<SetDevicePropertiesResponse> {
+        @Override
+        protected SetDevicePropertiesResponse newInstance() {
+            return new SetDevicePropertiesResponse();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, SetDevicePropertiesResponse dto) throws IOException {
+            switch (name) {
+                case "code":
+                    dto.code = nextInt(in, dto.code);
+                    break;
+                case "statusText":
+                    dto.statusText = nextInt(in, dto.statusText);
+                    break;
+                case "error":
+                    dto.error = nextJsonObject(in);
+                    break;
+                case "message":
+                    dto.message = nextString(in);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, SetDevicePropertiesResponse dto) throws IOException {
+            out.name("code").value(dto.code);
+            out.name("statusText").value(dto.statusText);
+            out.name("error");
+            writeJsonObject(out, dto.error);
+            out.name("message").value(dto.message);
+        }
+    }
+
+    private static class ErrorResponseAdapter extends DtoAdapter<ErrorResponse> {
+        @Override
+        protected ErrorResponse newInstance() {
+            return new ErrorResponse();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, ErrorResponse dto) throws IOException {
+            switch (name) {
+                case "code":
+                    dto.code = nextInt(in, dto.code);
+                    break;
+                case "message":
+                    dto.message = nextString(in);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, ErrorResponse dto) throws IOException {
+            out.name("code").value(dto.code);
+            out.name("message").value(dto.message);
+        }
+    }
+
+    private static class GetAccClientIdDTOAdapter extends DtoAdapter<GetAccClientIdDTO> {
+        @Override
+        protected GetAccClientIdDTO newInstance() {
+            return new GetAccClientIdDTO();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, GetAccClientIdDTO dto) throws IOException {
+            switch (name) {
+                case "language":
+                    dto.language = nextInt(in, dto.language);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, GetAccClientIdDTO dto) throws IOException {
+            out.name("language").value(dto.language);
+        }
+    }
+
+    private static class LoginRequestDTOAdapter extends DtoAdapter<LoginRequestDTO> {
+        @Override
+        protected LoginRequestDTO newInstance() {
+            return new LoginRequestDTO();
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, LoginRequestDTO dto) throws IOException {
+            switch (name) {
+                case "client_id":
+                    dto.client_id = nextString(in);
+                    break;
+                case "redirect_uri":
+                    dto.redirect_uri = nextString(in);
+                    break;
+                case "tenant":
+                    dto.tenant = nextString(in);
+                    break;
+                case "response_type":
+                    dto.response_type = nextString(in);
+                    break;
+                case "scope":
+                    dto.scope = nextString(in);
+                    break;
+                case "audience":
+                    dto.audience = nextString(in);
+                    break;
+                case "_csrf":
+                    dto._csrf = nextString(in);
+                    break;
+                case "state":
+                    dto.state = nextString(in);
+                    break;
+                case "_intstate":
+                    dto._intstate = nextString(in);
+                    break;
+                case "username":
+                    dto.username = nextString(in);
+                    break;
+                case "password":
+                    dto.password = nextString(in);
+                    break;
+                case "lang":
+                    dto.lang = nextString(in);
+                    break;
+                case "connection":
+                    dto.connection = nextString(in);
+                    break;
+                default:
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, LoginRequestDTO dto) throws IOException {
+            out.name("client_id").value(dto.client_id);
+            out.name("redirect_uri").value(dto.redirect_uri);
+            out.name("tenant").value(dto.tenant);
+            out.name("response_type").value(dto.response_type);
+            out.name("scope").value(dto.scope);
+            out.name("audience").value(dto.audience);
+            out.name("_csrf").value(dto._csrf);
+            out.name("state").value(dto.state);
+            out.name("_intstate").value(dto._intstate);
+            out.name("username").value(dto.username);
+            out.name("password").value(dto.password);
+            out.name("lang").value(dto.lang);
+            out.name("connection").value(dto.connection);
+        }
+    }
+
+    private static <T> T @Nullable [] readArray(JsonReader in, TypeAdapter<T> elementAdapter,
+            IntFunction<T[]> arrayFactory) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> elements = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            elements.add(elementAdapter.read(in));
+        }
+        in.endArray();
+        return elements.toArray(arrayFactory.apply(elements.size()));
+    }
+
+    private static <T> void writeArray(JsonWriter out, TypeAdapter<T> elementAdapter, T @Nullable [] elements)
+            throws IOException {
+        if (elements == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (T element : elements) {
+            elementAdapter.write(out, element);
+        }
+        out.endArray();
+    }
+
+    private static boolean nextIsNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private static @Nullable String nextString(JsonReader in) throws IOException {
+        if (nextIsNull(in)) {
+            return null;
+        }
+        if (in.peek() == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    private static @Nullable Boolean nextBoolean(JsonReader in) throws IOException {
+        if (nextIsNull(in)) {
+            return null;
+        }
+        if (in.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    private static @Nullable Integer nextInteger(JsonReader in) throws IOException {
+        if (nextIsNull(in)) {
+            return null;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static int nextInt(JsonReader in, int defaultValue) throws IOException {
+        Integer value = nextInteger(in);
+        return value != null ? value : defaultValue;
+    }
+
+    private static @Nullable Long nextLong(JsonReader in) throws IOException {
+        if (nextIsNull(in)) {
+            return null;
+        }
+        try {
+            return in.nextLong();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static @Nullable Double nextDouble(JsonReader in) throws IOException {
+        if (nextIsNull(in)) {
+            return null;
+        }
+        return in.nextDouble();
+    }
+
+    private static @Nullable JsonObject nextJsonObject(JsonReader in) throws IOException {
+        JsonElement element = JSON_ELEMENT.read(in);
+        return element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+    }
+
+    private static void writeJsonObject(JsonWriter out, @Nullable JsonObject value) throws IOException {
+        JSON_ELEMENT.write(out, value);
+    }
+}
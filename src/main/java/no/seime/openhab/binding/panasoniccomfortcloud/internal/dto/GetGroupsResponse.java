@@ -19,6 +19,6 @@ package no.seime.openhab.binding.panasoniccomfortcloud.internal.dto;
  * @author Arne Seime - Initial contribution.
  */
 
-public class GetGroupsResponse {
+public class GetGroupsResponse extends AbstractResponse {
     public GroupDTO[] groupList;
 }
@@ -21,7 +21,7 @@ import com.google.gson.JsonObject;
  * @author Arne Seime - Initial contribution.
  */
 
-public class SetDevicePropertiesResponse {
+public class SetDevicePropertiesResponse extends AbstractResponse {
     public int code;
     public int statusText;
     public JsonObject error;
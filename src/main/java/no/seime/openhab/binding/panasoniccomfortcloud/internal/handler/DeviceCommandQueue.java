@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiBridge;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.CommunicationException;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.SetDevicePropertiesResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Device;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.ParametersDelta;
+
+/**
+ * Per device queue of parameter changes. Changes arriving within the debounce window are merged into a single
+ * {@link ParametersDelta} and sent as one request. The device model is only updated once the server has accepted the
+ * merged change. Every submitted change gets its own future, which completes at the same time.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class DeviceCommandQueue {
+
+    /**
+     * Sends the merged parameters to the server without blocking
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<SetDevicePropertiesResponse> send(Device device, ParametersDelta delta);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(DeviceCommandQueue.class);
+    private final ScheduledExecutorService scheduler;
+    private final Sender sender;
+    private final long debounceMillis;
+
+    private CompletableFuture<@Nullable Void> lastSend = CompletableFuture.completedFuture(null);
+    private List<PendingChange> pending = new ArrayList<>();
+    // Each handler has a queue of its own, so all changes are for the same device. The latest submit wins, as the
+    // model may have handed out a newer instance of it.
+    private @Nullable Device pendingDevice;
+    private @Nullable ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    public DeviceCommandQueue(ScheduledExecutorService scheduler, Sender sender, long debounceMillis) {
+        this.scheduler = scheduler;
+        this.sender = sender;
+        this.debounceMillis = Math.max(0, debounceMillis);
+    }
+
+    /**
+     * Queue a parameter change. The debounce window starts with the first change after a flush, so a steady stream of
+     * commands cannot postpone sending indefinitely. The change is applied to the merged delta when the queue flushes,
+     * after the changes queued before it. A change throwing {@link IllegalStateException} is rejected on its own, the
+     * rest of the merged changes are still sent.
+     */
+    public CompletableFuture<Void> submit(Device device, Consumer<ParametersDelta> change) {
+        PendingChange pendingChange = new PendingChange(change);
+        synchronized (this) {
+            if (closed) {
+                pendingChange.result.cancel(false);
+                return pendingChange.result;
+            }
+            pending.add(pendingChange);
+            pendingDevice = device;
+            if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, debounceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return pendingChange.result;
+    }
+
+    void flush() {
+        List<PendingChange> changes;
+        Device device;
+        synchronized (this) {
+            changes = pending;
+            device = pendingDevice;
+            pending = new ArrayList<>();
+            pendingDevice = null;
+            scheduledFlush = null;
+        }
+        if (changes.isEmpty() || device == null) {
+            return;
+        }
+
+        // Chain sends so merged writes reach the server in the order they were queued, without holding a thread while
+        // the previous write is in flight
+        synchronized (this) {
+            lastSend = lastSend.handle((r, e) -> null).thenCompose(v -> send(device, changes));
+        }
+    }
+
+    /**
+     * Stop sending, ie when the handler is disposed. The scheduled flush is cancelled and the futures of changes not
+     * yet sent are cancelled. A write already in flight still updates the device model if the server accepts it, but
+     * its futures are cancelled too.
+     */
+    public void close() {
+        List<PendingChange> changes;
+        synchronized (this) {
+            closed = true;
+            ScheduledFuture<?> flush = scheduledFlush;
+            if (flush != null) {
+                flush.cancel(false);
+                scheduledFlush = null;
+            }
+            changes = pending;
+            pending = new ArrayList<>();
+            pendingDevice = null;
+        }
+        changes.forEach(e -> e.result.cancel(false));
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private CompletableFuture<@Nullable Void> send(Device device, List<PendingChange> changes) {
+        if (isClosed()) {
+            changes.forEach(e -> e.result.cancel(false));
+            return CompletableFuture.completedFuture(null);
+        }
+        ParametersDelta delta = new ParametersDelta();
+        List<PendingChange> accepted = new ArrayList<>();
+        for (PendingChange change : changes) {
+            try {
+                change.change.accept(delta);
+                accepted.add(change);
+            } catch (IllegalStateException e) {
+                change.result.completeExceptionally(e);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<SetDevicePropertiesResponse> request;
+        try {
+            logger.debug("Sending {} merged parameter change(s) to device {}: {}", accepted.size(),
+                    device.getDeviceId(), delta);
+            request = sender.send(device, delta);
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+
+        return request.handle((rsp, error) -> {
+            if (isClosed()) {
+                if (rsp != null && rsp.code == 0) {
+                    device.applyDelta(delta);
+                }
+                accepted.forEach(e -> e.result.cancel(false));
+            } else if (rsp != null && rsp.code == 0) {
+                device.applyDelta(delta);
+                accepted.forEach(e -> e.result.complete(null));
+            } else {
+                Throwable cause = rsp != null
+                        ? new CommunicationException(
+                                String.format("Server responded with code %d and message %s", rsp.code, rsp.error))
+                        : ApiBridge.unwrap(error);
+                accepted.forEach(c -> c.result.completeExceptionally(cause));
+            }
+            return null;
+        });
+    }
+
+    private static class PendingChange {
+        private final Consumer<ParametersDelta> change;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingChange(Consumer<ParametersDelta> change) {
+            this.change = change;
+        }
+    }
+}
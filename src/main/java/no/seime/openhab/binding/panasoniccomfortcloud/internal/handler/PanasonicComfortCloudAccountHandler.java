@@ -13,14 +13,22 @@
 
 package no.seime.openhab.binding.panasoniccomfortcloud.internal.handler;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.storage.StorageService;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.ChannelUID;
@@ -31,19 +39,24 @@ import org.openhab.core.types.Command;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.reflect.TypeToken;
-
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiBridge;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiMetrics;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.CircuitOpenException;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.ConfigurationException;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.OkHttpClientFactory;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.PanasonicComfortCloudException;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.config.AccountConfiguration;
-import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsRequest;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsResponse;
-import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GroupDTO;
-import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Device;
-import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Group;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.GroupModel;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.ModelStore;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.DevicePollEngine;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.DeviceStatusCache;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.PollCycleResult;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.RequestBudget;
 
 /**
  * The {@link PanasonicComfortCloudAccountHandler} is responsible for handling commands, which are
@@ -54,22 +67,74 @@ import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.GroupModel;
 @NonNullByDefault
 public class PanasonicComfortCloudAccountHandler extends BaseBridgeHandler {
     private static final int MIN_TIME_BETWEEEN_MODEL_UPDATES = 30;
-    public static final int MAX_RETRIES_BEFORE_GIVING_UP = 10;
+    private static final int MODEL_SAVE_DELAY_SECONDS = 10;
     private final Logger logger = LoggerFactory.getLogger(PanasonicComfortCloudAccountHandler.class);
     private Optional<ScheduledFuture<?>> statusFuture = Optional.empty();
-    private GroupModel model;
+    // Snapshot, replaced as a whole on every merge
+    private volatile GroupModel model;
     @NonNullByDefault({})
     AccountConfiguration config;
     private ApiBridge apiBridge;
-    private int errorCounter = 0;
+    private final ApiMetrics metrics;
+    private @Nullable Meter schedulerQueueGauge;
+    private @Nullable DevicePollEngine pollEngine;
+    private final AtomicBoolean pollInProgress = new AtomicBoolean();
+    private final @Nullable ModelStore modelStore;
+    private final AtomicBoolean savePending = new AtomicBoolean();
+    // Group listing cache, shared by the poller and discovery
+    private final Object groupsLock = new Object();
+    private @Nullable CompletableFuture<Boolean> groupsRequest;
+    private volatile @Nullable Instant groupsFetched;
+    // Bumped on dispose, group listings requested before are dropped when they complete
+    private final AtomicLong groupsGeneration = new AtomicLong();
+    private volatile Duration groupsMaxAge = Duration.ZERO;
+    private final DeviceStatusCache deviceStatusCache = new DeviceStatusCache(
+            Duration.ofSeconds(DeviceStatusCache.DEFAULT_TTL_SECONDS));
 
     private static final String STORAGE_KEY = "PanasonicComfortCloud-Storage";
 
-    private Random random = new Random();
-
     public PanasonicComfortCloudAccountHandler(final Bridge bridge, StorageService storageService) {
+        this(bridge, storageService, OkHttpClientFactory.UNSHARED);
+    }
+
+    public PanasonicComfortCloudAccountHandler(final Bridge bridge, StorageService storageService,
+            OkHttpClientFactory clientFactory) {
+        this(bridge, storageService, clientFactory, ApiMetrics.disabled());
+    }
+
+    public PanasonicComfortCloudAccountHandler(final Bridge bridge, StorageService storageService,
+            OkHttpClientFactory clientFactory, MeterRegistry meterRegistry) {
+        this(bridge, storageService, clientFactory, new ApiMetrics(meterRegistry, bridge.getUID().toString()));
+    }
+
+    private PanasonicComfortCloudAccountHandler(final Bridge bridge, StorageService storageService,
+            OkHttpClientFactory clientFactory, ApiMetrics metrics) {
+        this(bridge, metrics, new ModelStore(storageService.getStorage(STORAGE_KEY), bridge.getUID().toString()),
+                scheduler -> new ApiBridge(storageService.getStorage(STORAGE_KEY), scheduler, clientFactory, metrics));
+    }
+
+    /**
+     * @param apiBridgeFactory creates the API client, given this handler's scheduler
+     */
+    PanasonicComfortCloudAccountHandler(final Bridge bridge,
+            Function<ScheduledExecutorService, ApiBridge> apiBridgeFactory) {
+        this(bridge, ApiMetrics.disabled(), apiBridgeFactory);
+    }
+
+    PanasonicComfortCloudAccountHandler(final Bridge bridge, ApiMetrics metrics,
+            Function<ScheduledExecutorService, ApiBridge> apiBridgeFactory) {
+        this(bridge, metrics, null, apiBridgeFactory);
+    }
+
+    /**
+     * @param modelStore persists the model between restarts, null to always start with an empty model
+     */
+    PanasonicComfortCloudAccountHandler(final Bridge bridge, ApiMetrics metrics, @Nullable ModelStore modelStore,
+            Function<ScheduledExecutorService, ApiBridge> apiBridgeFactory) {
         super(bridge);
-        apiBridge = new ApiBridge(storageService.getStorage(STORAGE_KEY));
+        this.metrics = metrics;
+        this.modelStore = modelStore;
+        apiBridge = apiBridgeFactory.apply(scheduler);
         model = new GroupModel(0);
     }
 
@@ -86,120 +151,253 @@ public class PanasonicComfortCloudAccountHandler extends BaseBridgeHandler {
         updateStatus(ThingStatus.UNKNOWN);
         AccountConfiguration loadedConfig = getConfigAs(AccountConfiguration.class);
         config = loadedConfig;
-        apiBridge.init(loadedConfig.username, loadedConfig.password, StringUtils.trimToNull(loadedConfig.appVersion));
+        restoreModel();
+        try {
+            apiBridge.init(loadedConfig);
+        } catch (ConfigurationException e) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, e.getMessage());
+            return;
+        }
         int refreshInterval = config.refreshInterval;
         if (refreshInterval < MIN_TIME_BETWEEEN_MODEL_UPDATES) {
             logger.warn("Refresh interval too short, setting minimum value of {}", MIN_TIME_BETWEEEN_MODEL_UPDATES);
             refreshInterval = MIN_TIME_BETWEEEN_MODEL_UPDATES;
         }
 
+        // Discovery and things initializing shortly after a poll reuse its listing. Shorter than the interval, as the
+        // poll is scheduled from when the previous one started while the listing is dated from its response.
+        groupsMaxAge = Duration.ofSeconds(refreshInterval / 2);
+        groupsFetched = null;
+        pollInProgress.set(false);
+        deviceStatusCache.setTtl(Duration.ofSeconds(Math.max(0, config.deviceStatusCacheTtl)));
+        deviceStatusCache.clear();
+
+        pollEngine = new DevicePollEngine(scheduler,
+                new RequestBudget(Math.max(1, config.maxRequestsPerMinute)), config.pollParallelism,
+                Duration.ofSeconds(refreshInterval),
+                Duration.ofSeconds(Math.max(refreshInterval, config.maxRefreshInterval)), this::pollCycleCompleted);
+
         statusFuture = Optional
                 .of(scheduler.scheduleWithFixedDelay(this::doPollInternal, 0, refreshInterval, TimeUnit.SECONDS));
+
+        if (schedulerQueueGauge == null) {
+            schedulerQueueGauge = metrics.queueDepth("scheduler", this::schedulerQueueDepth);
+        }
+    }
+
+    private double schedulerQueueDepth() {
+        // The scheduler is shared by all things, the depth includes work of other bindings
+        return scheduler instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) scheduler).getQueue().size()
+                : Double.NaN;
+    }
+
+    /**
+     * Restore the model persisted by a previous run, so that things can publish their last known state before the
+     * first poll. The first poll then reconciles it with the server.
+     */
+    private synchronized void restoreModel() {
+        ModelStore store = modelStore;
+        if (store != null && model.getGroups().isEmpty()) {
+            model = store.load();
+            logger.debug("Restored {} groups from the persisted model", model.getGroups().size());
+        }
+    }
+
+    /**
+     * Persist the model in the background. Changes within a few seconds of each other are written together.
+     */
+    public void modelChanged() {
+        if (modelStore != null && savePending.compareAndSet(false, true)) {
+            scheduler.schedule(this::saveModel, MODEL_SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void saveModel() {
+        savePending.set(false);
+        ModelStore store = modelStore;
+        GroupModel current = model;
+        ThingStatus status = getThing().getStatus();
+        if (store != null && !current.getGroups().isEmpty() && status != ThingStatus.REMOVING
+                && status != ThingStatus.REMOVED) {
+            try {
+                store.save(current);
+            } catch (RuntimeException e) {
+                logger.debug("Could not persist model: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void handleRemoval() {
+        ModelStore store = modelStore;
+        if (store != null) {
+            store.clear();
+        }
+        super.handleRemoval();
     }
 
     @Override
     public void dispose() {
         stopScheduledUpdate();
+        if (savePending.get()) {
+            saveModel();
+        }
+        Meter gauge = schedulerQueueGauge;
+        if (gauge != null) {
+            metrics.remove(gauge);
+            schedulerQueueGauge = null;
+        }
+        DevicePollEngine engine = pollEngine;
+        if (engine != null) {
+            engine.stop();
+            pollEngine = null;
+        }
+        pollInProgress.set(false);
+        synchronized (groupsLock) {
+            groupsGeneration.incrementAndGet();
+            groupsRequest = null;
+            groupsFetched = null;
+        }
+        deviceStatusCache.clear();
+        apiBridge.dispose();
         super.dispose();
     }
 
     private void doPollInternal() {
-        doPoll(true);
+        if (!pollInProgress.compareAndSet(false, true)) {
+            logger.debug("Previous poll still in progress, skipping this one");
+            return;
+        }
+        doPoll(true).whenComplete((r, e) -> pollInProgress.set(false));
     }
 
-    public synchronized void doPoll(boolean triggerDeviceUpdate) {
+    /**
+     * Refresh the model, see {@link #refreshGroups()}, and optionally run a poll cycle over all devices. Does not block
+     * the calling thread.
+     *
+     * @return future completed when the model and, if requested, all devices have been refreshed
+     */
+    public CompletableFuture<@Nullable Void> doPoll(boolean triggerDeviceUpdate) {
+        DevicePollEngine engine = pollEngine;
+        return refreshGroups().thenCompose(refreshed -> {
+            if (refreshed && triggerDeviceUpdate && engine != null) {
+                List<PanasonicComfortCloudBaseThingHandler> targets = getThing().getThings().stream()
+                        .map(e -> e.getHandler())
+                        .filter(e -> e instanceof PanasonicComfortCloudBaseThingHandler)
+                        .map(e -> (PanasonicComfortCloudBaseThingHandler) e).collect(Collectors.toList());
+                return engine.runCycle(targets).thenApply(result -> null);
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
 
-        try {
-            final GetGroupsRequest getGroupsRequest = new GetGroupsRequest();
-            final GetGroupsResponse getGroupsResponse = apiBridge.sendRequest(getGroupsRequest,
-                    new TypeToken<GetGroupsResponse>() {
-                    }.getType());
-
-            // Merge model
-
-            for (GroupDTO groupDto : getGroupsResponse.groupList) {
-                Optional<Group> existingGroup = model.getGroups().stream()
-                        .filter(e -> groupDto.groupId.equals(e.getId())).findFirst();
-                Group group;
-                if (existingGroup.isEmpty()) {
-                    group = new Group();
-
-                    model.addGroup(group);
-                } else {
-                    group = existingGroup.get();
+    /**
+     * Refresh the group listing, unless it was fetched within the freshness window. Callers arriving while a request is
+     * in flight share its outcome instead of sending another.
+     *
+     * @return future completed with true if the model holds a listing from within the freshness window, false if the
+     *         refresh failed. Never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> refreshGroups() {
+        synchronized (groupsLock) {
+            CompletableFuture<Boolean> inFlight = groupsRequest;
+            if (inFlight != null) {
+                return inFlight;
+            }
+            Instant fetched = groupsFetched;
+            if (fetched != null && Duration.between(fetched, Instant.now()).compareTo(groupsMaxAge) < 0) {
+                logger.debug("Group listing fetched at {} is still fresh, not refreshing", fetched);
+                return CompletableFuture.completedFuture(true);
+            }
+            CompletableFuture<Boolean> request = new CompletableFuture<>();
+            groupsRequest = request;
+            fetchGroups().whenComplete((refreshed, e) -> {
+                synchronized (groupsLock) {
+                    if (groupsRequest == request) {
+                        groupsRequest = null;
+                    }
                 }
+                request.complete(refreshed != null && refreshed);
+            });
+            return request;
+        }
+    }
 
-                group.mergeFrom(groupDto);
+    private CompletableFuture<Boolean> fetchGroups() {
+        long generation = groupsGeneration.get();
+        return acquireRequestPermit()
+                .thenCompose(waited -> apiBridge.<GetGroupsResponse> sendRequestAsync(new GetGroupsRequest(),
+                        WireCodec.GET_GROUPS_RESPONSE))
+                .handle((response, e) -> {
+                    if (generation != groupsGeneration.get()) {
+                        logger.debug("Dropping group listing requested before the handler was disposed");
+                        return false;
+                    }
+                    return response != null ? mergeModel(response) : handleRefreshError(e);
+                });
+    }
 
-                for (final DeviceDTO deviceDTO : groupDto.devices) {
-                    // Some device details come from the getGroups call, others come from each device call
+    /**
+     * Take a permit from the account's request budget, shared by polls, refresh commands and device commands. Does not
+     * block the calling thread.
+     *
+     * @return future completed with the milliseconds waited once the request may be sent
+     */
+    public CompletableFuture<Long> acquireRequestPermit() {
+        DevicePollEngine engine = pollEngine;
+        return engine != null ? engine.getBudget().acquireAsync(scheduler) : CompletableFuture.completedFuture(0L);
+    }
 
-                    Optional<Device> existingDevice = group.getDevices().stream()
-                            .filter(e -> deviceDTO.deviceGuid.equals(e.getDeviceId())).findFirst();
-                    Device device;
-                    if (existingDevice.isEmpty()) {
-                        device = new Device(group);
-                        group.addDevice(device);
-                    } else {
-                        device = existingDevice.get();
-                    }
+    private void pollCycleCompleted(PollCycleResult result) {
+        logger.debug(
+                "Poll cycle {} completed in {} ms ({} ms waiting for request budget): {} polled, {} skipped, {} failed",
+                result.getCycleNumber(), result.getDurationMillis(), result.getBudgetWaitMillis(), result.getPolled(),
+                result.getSkipped(), result.getFailed());
+        metrics.pollCycle(result);
+    }
 
-                    device.mergeFromGroupList(deviceDTO);
+    /**
+     * Merge the group listing into a new model snapshot and publish it
+     *
+     * @return true, the model was successfully refreshed
+     */
+    private synchronized boolean mergeModel(GetGroupsResponse getGroupsResponse) {
+        model = model.mergeFrom(getGroupsResponse.groupList);
+        groupsFetched = Instant.now();
+        modelChanged();
+        updateStatus(ThingStatus.ONLINE);
+        return true;
+    }
 
-                }
-            }
-            updateStatus(ThingStatus.ONLINE);
-            if (triggerDeviceUpdate) {
-
-                AtomicInteger delayIncrementer = new AtomicInteger(1000);
-
-                try {
-                    getThing().getThings().stream()
-                            .filter(e -> e.isEnabled()
-                                    && (e.getStatus() == ThingStatus.ONLINE || e.getStatus() == ThingStatus.OFFLINE))
-                            .forEach(e -> {
-                                int delay = delayIncrementer.addAndGet(random.nextInt(3000));
-                                try {
-                                    scheduler.schedule(() -> ((PanasonicComfortCloudBaseThingHandler) e.getHandler())
-                                            .loadFromServer(), delay, TimeUnit.MILLISECONDS);
-                                } catch (Exception ex) {
-                                    logger.warn("Error updating thing {}", e.getUID(), ex);
-                                }
-                            });
-                } catch (NullPointerException ex) {
-                    logger.debug(
-                            "Nullpointer during update - happens if a thing is deleted while polling is in progress",
-                            ex);
-                }
-            }
-        } catch (final ConfigurationException e) {
+    /**
+     * Handle a failed group listing request. Communication errors keep the last known model and polling continues;
+     * while the circuit of the group listing is open, polls fail without sending a request until the next probe.
+     *
+     * @return false, the model could not be refreshed
+     */
+    private synchronized boolean handleRefreshError(Throwable error) {
+        Throwable cause = ApiBridge.unwrap(error);
+        if (cause instanceof ConfigurationException) {
+            ConfigurationException e = (ConfigurationException) cause;
             logger.info("Error initializing Panasonic Comfort Cloud data: {}", e.getMessage());
             stopScheduledUpdate();
-            model.clear();
+            model = new GroupModel(0);
+            groupsFetched = null;
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
                     "Error fetching data: " + e.getMessage());
-        } catch (final PanasonicComfortCloudException e) {
-            logger.info("Error initializing data: {}", e.getMessage());
-            stopScheduledUpdate();
-            model.clear();
-
-            errorCounter++;
-
-            int retryDelay = 60 * (errorCounter * errorCounter);
-            // Try init again
-            if (errorCounter <= MAX_RETRIES_BEFORE_GIVING_UP) {
-                logger.info("Will try to re-init in {} seconds. Attempt {} of {}", retryDelay, errorCounter,
-                        MAX_RETRIES_BEFORE_GIVING_UP);
-                statusFuture = Optional.of(scheduler.schedule(this::initialize, retryDelay, TimeUnit.SECONDS));
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
-                        "Error fetching data: " + e.getMessage() + ", will retry in " + retryDelay + " seconds");
-            } else {
-                logger.info("Too many communication errors, giving up");
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
-                        "Error fetching data: " + e.getMessage() + ", not retrying due to too many errors");
-                errorCounter = 0;
-            }
+        } else if (cause instanceof CircuitOpenException) {
+            logger.debug("Skipping refresh: {}", cause.getMessage());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, cause.getMessage());
+        } else if (cause instanceof PanasonicComfortCloudException) {
+            logger.info("Error refreshing data: {}", cause.getMessage());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                    "Error fetching data: " + cause.getMessage());
+        } else {
+            logger.warn("Unexpected error refreshing data", cause);
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                    "Error fetching data: " + cause.getMessage());
         }
+        return false;
     }
 
     /**
@@ -214,6 +412,21 @@ public class PanasonicComfortCloudAccountHandler extends BaseBridgeHandler {
         });
     }
 
+    /**
+     * Notify the poller that a command was sent to a device, so that its state is fetched again soon
+     */
+    public void deviceCommandSent(String deviceId) {
+        deviceStatusCache.invalidate(deviceId);
+        DevicePollEngine engine = pollEngine;
+        if (engine != null) {
+            engine.commandSent(deviceId);
+        }
+    }
+
+    /**
+     * @return the current model snapshot. Its groups never change once returned, call again for the latest. Devices
+     *         are shared between snapshots and always hold their latest state.
+     */
     public GroupModel getModel() {
         return model;
     }
@@ -221,4 +434,15 @@ public class PanasonicComfortCloudAccountHandler extends BaseBridgeHandler {
     public ApiBridge getApiBridge() {
         return apiBridge;
     }
+
+    /**
+     * @return cache of device status fetches, shared by all things of the account
+     */
+    public DeviceStatusCache getDeviceStatusCache() {
+        return deviceStatusCache;
+    }
+
+    public ApiMetrics getMetrics() {
+        return metrics;
+    }
 }
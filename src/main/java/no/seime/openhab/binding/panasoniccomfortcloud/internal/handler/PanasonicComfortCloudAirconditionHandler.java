@@ -15,9 +15,13 @@ package no.seime.openhab.binding.panasoniccomfortcloud.internal.handler;
 
 import static no.seime.openhab.binding.panasoniccomfortcloud.internal.BindingConstants.*;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import javax.measure.quantity.Temperature;
 
@@ -33,7 +37,8 @@ import org.openhab.core.types.UnDefType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import no.seime.openhab.binding.panasoniccomfortcloud.internal.PanasonicComfortCloudException;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiBridge;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.config.AirConditionerConfiguration;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.SetDevicePropertiesRequest;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.SetDevicePropertiesResponse;
@@ -60,32 +65,60 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
 
     private AirConditionerConfiguration config;
 
+    private DeviceCommandQueue commandQueue;
+
     @Override
     public void initialize() {
         config = getConfigAs(AirConditionerConfiguration.class);
         updateStatus(ThingStatus.UNKNOWN);
         logger.debug("Initializing air conditioner using config {}", config);
-        super.initialize(config.deviceId);
-        // This handler is responsible for loading the first time from the server, then the Account handler will take
-        // over
-        scheduler.schedule(this::loadIfDevicePresent, 3 + random.nextInt(10), TimeUnit.SECONDS);
+        super.initialize(config.deviceId, Duration.ofSeconds(Math.max(0, config.maxStaleness)));
+        commandQueue = new DeviceCommandQueue(scheduler, this::sendMergedParameters, config.commandDebounce);
+        if (publishKnownState()) {
+            logger.debug("Published last known state of device {}, polls will reconcile it with the server",
+                    config.deviceId);
+        } else {
+            // This handler is responsible for loading the first time from the server, then the Account handler will
+            // take over
+            scheduler.schedule(this::loadIfDevicePresent, 3 + random.nextInt(10), TimeUnit.SECONDS);
+        }
     }
 
-    private void loadIfDevicePresent() {
-        Optional<Device> device = accountHandler.getModel().findDeviceByDeviceId(config.deviceId);
-        if (device.isPresent()) {
-            loadFromServer();
-        } else {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
-                    "Could not find device in internal model, check deviceId configuration");
+    @Override
+    public void dispose() {
+        DeviceCommandQueue queue = commandQueue;
+        if (queue != null) {
+            queue.close();
+            commandQueue = null;
         }
+        super.dispose();
+    }
+
+    private void loadIfDevicePresent() {
+        // Usually served from the listing the account fetched moments ago
+        accountHandler.refreshGroups().thenAccept(refreshed -> {
+            Optional<Device> device = accountHandler.getModel().findDeviceByDeviceId(config.deviceId);
+            if (device.isPresent()) {
+                loadFromServer();
+            } else if (refreshed) {
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
+                        "Could not find device in internal model, check deviceId configuration");
+            } else {
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                        "Could not fetch the device list of the account");
+            }
+        });
     }
 
     @Override
     public void bridgeStatusChanged(ThingStatusInfo bridgeStatusInfo) {
         super.bridgeStatusChanged(bridgeStatusInfo);
-        if (bridgeStatusInfo.getStatus() != ThingStatus.ONLINE) {
-            getThing().getChannels().forEach(channel -> updateState(channel.getUID(), UnDefType.UNDEF));
+        if (bridgeStatusInfo.getStatus() == ThingStatus.OFFLINE
+                && bridgeStatusInfo.getStatusDetail() == ThingStatusDetail.COMMUNICATION_ERROR) {
+            // The account keeps its model while the cloud is unreachable
+            refreshFailed();
+        } else if (bridgeStatusInfo.getStatus() != ThingStatus.ONLINE) {
+            undefChannels();
         }
     }
 
@@ -129,6 +162,11 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
                 case CHANNEL_ACTUAL_NANOE:
                     handleActualNanoeCommand(channelUID, command, device);
                     break;
+                case CHANNEL_STALE:
+                    if (command instanceof RefreshType) {
+                        updateState(channelUID, OnOffType.from(isStale()));
+                    }
+                    break;
                 default:
                     logger.debug("Received command on unknown channel {}, ignoring", channelUID.getId());
             }
@@ -146,10 +184,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
 
             try {
                 AirSwingAutoMode airSwingAutoMode = AirSwingAutoMode.valueOf(command.toString());
-                Parameters newParameters = device.createSendRequestParameters();
-                newParameters.setFanAutoMode(airSwingAutoMode);
-                sendParameters(channelUID, device, newParameters,
-                        StringType.valueOf(newParameters.getFanAutoMode().toString()));
+                sendParameters(channelUID, device, p -> p.setFanAutoMode(airSwingAutoMode),
+                        StringType.valueOf(airSwingAutoMode.toString()));
             } catch (IllegalArgumentException e) {
                 logger.debug(ERROR_MESSAGE_UNSUPPORTED_VALUE, device.getDeviceId(), command, channelUID,
                         device.getFeatureSet().getSupportedEcoModes());
@@ -163,11 +199,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
         } else {
             try {
                 FanSpeed fanSpeed = FanSpeed.valueOf(command.toString());
-                Parameters newParameters = device.createSendRequestParameters();
-                newParameters.setFanSpeed(fanSpeed);
-
-                sendParameters(channelUID, device, newParameters,
-                        StringType.valueOf(newParameters.getFanSpeed().toString()));
+                sendParameters(channelUID, device, p -> p.setFanSpeed(fanSpeed),
+                        StringType.valueOf(fanSpeed.toString()));
             } catch (IllegalArgumentException e) {
                 logger.debug(ERROR_MESSAGE_UNSUPPORTED_VALUE, device.getDeviceId(), command, channelUID,
                         device.getFeatureSet().getSupportedEcoModes());
@@ -180,10 +213,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
             updateState(channelUID, StringType.valueOf(device.getCurrentParameters().getNanoeMode().toString()));
         } else if (device.getFeatureSet().isNanoeStandAlone()) {
             NanoeMode nanoeMode = NanoeMode.valueOf(command.toString());
-            Parameters newParameters = device.createSendRequestParameters();
-            newParameters.setNanoeMode(nanoeMode);
-            sendParameters(channelUID, device, newParameters,
-                    StringType.valueOf(newParameters.getNanoeMode().toString()));
+            sendParameters(channelUID, device, p -> p.setNanoeMode(nanoeMode),
+                    StringType.valueOf(nanoeMode.toString()));
         } else {
             logger.debug(ERROR_MESSAGE_UNSUPPORTED_COMMAND, command, channelUID);
         }
@@ -204,11 +235,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
             try {
                 EcoMode ecoMode = EcoMode.valueOf(command.toString());
                 if (device.getFeatureSet().getSupportedEcoModes().contains(ecoMode)) {
-                    Parameters newParameters = device.createSendRequestParameters();
-                    newParameters.setEcoMode(ecoMode);
-
-                    sendParameters(channelUID, device, newParameters,
-                            StringType.valueOf(newParameters.getEcoMode().toString()));
+                    sendParameters(channelUID, device, p -> p.setEcoMode(ecoMode),
+                            StringType.valueOf(ecoMode.toString()));
                 } else {
                     logger.debug(ERROR_MESSAGE_UNSUPPORTED_FEATURE, device.getDeviceId(), command, channelUID);
                 }
@@ -226,11 +254,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
             try {
                 AirSwingSideways airSwingSideways = AirSwingSideways.valueOf(command.toString());
                 if (device.getFeatureSet().getSupportedSwingSidewayModes().contains(airSwingSideways)) {
-                    Parameters newParameters = device.createSendRequestParameters();
-                    newParameters.setSwingSideways(airSwingSideways);
-
-                    sendParameters(channelUID, device, newParameters,
-                            StringType.valueOf(newParameters.getSwingSideways().toString()));
+                    sendParameters(channelUID, device, p -> p.setSwingSideways(airSwingSideways),
+                            StringType.valueOf(airSwingSideways.toString()));
                 } else {
                     logger.debug(ERROR_MESSAGE_UNSUPPORTED_FEATURE, device.getDeviceId(), command, channelUID);
                 }
@@ -248,11 +273,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
             try {
                 AirSwingUpDown airSwingUpDown = AirSwingUpDown.valueOf(command.toString());
                 if (device.getFeatureSet().getSupportedSwingUpDownModes().contains(airSwingUpDown)) {
-                    Parameters newParameters = device.createSendRequestParameters();
-                    newParameters.setSwingUpDown(airSwingUpDown);
-
-                    sendParameters(channelUID, device, newParameters,
-                            StringType.valueOf(newParameters.getSwingUpDown().toString()));
+                    sendParameters(channelUID, device, p -> p.setSwingUpDown(airSwingUpDown),
+                            StringType.valueOf(airSwingUpDown.toString()));
                 } else {
                     logger.debug(ERROR_MESSAGE_UNSUPPORTED_FEATURE, device.getDeviceId(), command, channelUID);
                 }
@@ -281,20 +303,22 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
                 targetTemperature = ((DecimalType) command).doubleValue();
             }
 
-            OperationMode mode = device.getCurrentParameters().getMode();
-            if (OperationMode.AUTO == mode || OperationMode.COOL == mode || OperationMode.HEAT == mode) {
-                Parameters newParameters = device.createSendRequestParameters();
-                newParameters.setTargetTemperature(targetTemperature);
-
-                sendParameters(channelUID, device, newParameters,
-                        new QuantityType<>(targetTemperature, device.getTemperatureUnit()));
-            } else {
-                logger.debug(
-                        "The device {} does not support setting target temperature for channel {} - in mode {}. Change mode to AUTO, COOL or HEAT to set target temperature",
-                        device.getDeviceId(), channelUID, mode);
-
-            }
+            // Checked when the queue flushes, as a mode change may be waiting in the same batch
+            double newTargetTemperature = targetTemperature;
+            sendParameters(channelUID, device, p -> setTargetTemperature(p, device, newTargetTemperature),
+                    new QuantityType<>(targetTemperature, device.getTemperatureUnit()));
+        }
+    }
 
+    static void setTargetTemperature(ParametersDelta delta, Device device, double targetTemperature) {
+        OperationMode mode = delta.getMode(device.getCurrentParameters());
+        if (OperationMode.AUTO == mode || OperationMode.COOL == mode || OperationMode.HEAT == mode) {
+            delta.setTargetTemperature(targetTemperature);
+        } else {
+            throw new IllegalStateException(String.format(
+                    "The device %s does not support setting target temperature in mode %s. "
+                            + "Change mode to AUTO, COOL or HEAT to set target temperature",
+                    device.getDeviceId(), mode));
         }
     }
 
@@ -305,11 +329,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
             try {
                 OperationMode operationMode = OperationMode.valueOf(command.toString());
                 if (device.getFeatureSet().getSupportedOperationModes().contains(operationMode)) {
-                    Parameters newParameters = device.createSendRequestParameters();
-                    newParameters.setMode(operationMode);
-
-                    sendParameters(channelUID, device, newParameters,
-                            StringType.valueOf(newParameters.getMode().toString()));
+                    sendParameters(channelUID, device, p -> p.setMode(operationMode),
+                            StringType.valueOf(operationMode.toString()));
                 } else {
                     logger.debug(ERROR_MESSAGE_UNSUPPORTED_FEATURE, device.getDeviceId(), command, channelUID);
                 }
@@ -325,9 +346,8 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
             updateState(channelUID, OnOffType.from(device.getCurrentParameters().isMasterSwitch()));
         } else {
             if (command instanceof OnOffType) {
-                Parameters newParameters = device.createSendRequestParameters();
-                newParameters.setMasterSwitch(command == OnOffType.ON);
-                sendParameters(channelUID, device, newParameters, (OnOffType) command);
+                sendParameters(channelUID, device, p -> p.setMasterSwitch(command == OnOffType.ON),
+                        (OnOffType) command);
             } else {
                 logger.debug(ERROR_MESSAGE_UNSUPPORTED_COMMAND, command, channelUID);
             }
@@ -361,23 +381,45 @@ public class PanasonicComfortCloudAirconditionHandler extends PanasonicComfortCl
         }
     }
 
-    private void sendParameters(ChannelUID channelUID, Device device, Parameters newParameters,
+    private void sendParameters(ChannelUID channelUID, Device device, Consumer<ParametersDelta> change,
             State newStateIfSuccessfulUpdate) {
-        try {
-            SetDevicePropertiesResponse rsp = accountHandler.getApiBridge().sendRequest(
-                    new SetDevicePropertiesRequest(device.getDeviceId(), newParameters.toParametersDTO(device)),
-                    SetDevicePropertiesResponse.class);
-            if (rsp.code == 0) {
+        DeviceCommandQueue queue = commandQueue;
+        if (queue == null) {
+            logger.debug("Handler of device {} is disposed, not sending parameters", device.getDeviceId());
+            return;
+        }
+        queue.submit(device, change).whenComplete((result, e) -> {
+            if (e instanceof CancellationException) {
+                // The handler was disposed before the change was sent
+                return;
+            } else if (e == null) {
                 updateState(channelUID, newStateIfSuccessfulUpdate);
-
+            } else if (ApiBridge.unwrap(e) instanceof IllegalStateException) {
+                // Not supported in the mode the device would be in, nothing was sent
+                logger.debug("{}", ApiBridge.unwrap(e).getMessage());
+                handleCommand(channelUID, RefreshType.REFRESH, device);
             } else {
-                logger.warn(
-                        "Error sending parameters to device {} for channel {}. Server responded with code {} and message {}",
-                        device.getDeviceId(), channelUID, rsp.code, rsp.error);
+                logger.warn("Error sending parameters to device {} for channel {}: {}", device.getDeviceId(),
+                        channelUID, ApiBridge.unwrap(e).getMessage());
+                logger.debug("Error updating AC parameter", e);
+                // The device did not accept the change, show the state it is known to be in
+                handleCommand(channelUID, RefreshType.REFRESH, device);
             }
-        } catch (PanasonicComfortCloudException e) {
-            logger.warn("Error updating AC parameter {}", e.getMessage());
-            logger.debug("Error updating AC parameter", e);
-        }
+        });
+    }
+
+    private CompletableFuture<SetDevicePropertiesResponse> sendMergedParameters(Device device,
+            ParametersDelta delta) {
+        return accountHandler.acquireRequestPermit()
+                .thenCompose(waited -> accountHandler.getApiBridge().<SetDevicePropertiesResponse> sendRequestAsync(
+                        new SetDevicePropertiesRequest(device.getDeviceId(),
+                                delta.toParametersDTO(device.getCurrentParameters(), device)),
+                        WireCodec.SET_DEVICE_PROPERTIES_RESPONSE))
+                .thenApply(rsp -> {
+                    if (rsp.code == 0) {
+                        accountHandler.deviceCommandSent(device.getDeviceId());
+                    }
+                    return rsp;
+                });
     }
 }
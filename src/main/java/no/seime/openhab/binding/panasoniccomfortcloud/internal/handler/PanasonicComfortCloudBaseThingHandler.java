@@ -13,10 +13,20 @@
 
 package no.seime.openhab.binding.panasoniccomfortcloud.internal.handler;
 
+import static no.seime.openhab.binding.panasoniccomfortcloud.internal.BindingConstants.CHANNEL_STALE;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
@@ -28,72 +38,279 @@ import org.openhab.core.types.UnDefType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.reflect.TypeToken;
-
+import io.micrometer.core.instrument.Meter;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiBridge;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.CircuitOpenException;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.FingerprintedResponse;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.PanasonicComfortCloudException;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetDeviceRequest;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Device;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.DeviceStatusCache;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.PollOutcome;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.PollTarget;
 
 /**
  * @author Arne Seime - Initial contribution
  */
 @NonNullByDefault
-public abstract class PanasonicComfortCloudBaseThingHandler extends BaseThingHandler {
+public abstract class PanasonicComfortCloudBaseThingHandler extends BaseThingHandler implements PollTarget {
     private final Logger logger = LoggerFactory.getLogger(PanasonicComfortCloudBaseThingHandler.class);
     @NonNullByDefault({})
     protected String deviceId;
     @NonNullByDefault({})
     protected PanasonicComfortCloudAccountHandler accountHandler;
+    private @Nullable Meter stalenessGauge;
+    private Duration maxStaleness = Duration.ZERO;
+    // When the published channel state was last confirmed by the server, null if no server state is published
+    private @Nullable Instant lastRefreshed;
+    private boolean stale;
+    private @Nullable ScheduledFuture<?> staleExpiry;
 
     protected PanasonicComfortCloudBaseThingHandler(final Thing thing) {
         super(thing);
     }
 
     protected void initialize(String deviceId) {
+        initialize(deviceId, Duration.ZERO);
+    }
+
+    /**
+     * @param maxStaleness how long the last known state is kept when the device cannot be refreshed
+     */
+    protected void initialize(String deviceId, Duration maxStaleness) {
         accountHandler = (PanasonicComfortCloudAccountHandler) getBridge().getHandler();
         this.deviceId = deviceId;
+        this.maxStaleness = maxStaleness;
+        removeStalenessGauge();
+        stalenessGauge = accountHandler.getMetrics().deviceStaleness(deviceId, this::getLastUpdated);
+    }
+
+    private @Nullable Instant getLastUpdated() {
+        return accountHandler.getModel().findDeviceByDeviceId(deviceId).map(Device::getLastUpdated).orElse(null);
+    }
+
+    private void removeStalenessGauge() {
+        Meter gauge = stalenessGauge;
+        if (gauge != null && accountHandler != null) {
+            accountHandler.getMetrics().remove(gauge);
+        }
+        stalenessGauge = null;
+    }
+
+    @Override
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    @Override
+    public boolean isPollable() {
+        return getThing().isEnabled()
+                && (getThing().getStatus() == ThingStatus.ONLINE || getThing().getStatus() == ThingStatus.OFFLINE);
+    }
+
+    @Override
+    public CompletableFuture<PollOutcome> poll(Supplier<CompletableFuture<Long>> permit) {
+        return loadFromServer(permit);
+    }
+
+    /**
+     * Fetch device details from the server and refresh all channels, unless they were fetched within the time to live
+     * of the account's {@link DeviceStatusCache} or a fetch is already in flight. The request counts against the
+     * account's request budget. Does not block the calling thread.
+     */
+    public CompletableFuture<PollOutcome> loadFromServer() {
+        return loadFromServer(accountHandler::acquireRequestPermit);
     }
 
-    public void loadFromServer() {
+    private CompletableFuture<PollOutcome> loadFromServer(Supplier<CompletableFuture<Long>> permit) {
         Optional<Device> device = accountHandler.getModel().findDeviceByDeviceId(deviceId);
-        if (device.isPresent()) {
-            try {
-                final GetDeviceRequest getDeviceDetailsRequest = new GetDeviceRequest(deviceId);
-
-                final DeviceDTO updatedDeviceDetails = accountHandler.getApiBridge()
-                        .sendRequest(getDeviceDetailsRequest, new TypeToken<DeviceDTO>() {
-                        }.getType());
-
-                device.get().mergeFromDeviceDetails(updatedDeviceDetails);
-                Map<String, String> properties = device.get().getThingProperties();
-                updateThing(editThing().withProperties(properties).build());
-                updateStatus(ThingStatus.ONLINE);
-                thing.getChannels().forEach(e -> handleCommand(e.getUID(), RefreshType.REFRESH));
-            } catch (PanasonicComfortCloudException ex) {
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
-                        "Error retrieving data from server: " + ex.getMessage());
-                // Undef all channels if error
-                thing.getChannels().forEach(e -> updateState(e.getUID(), UnDefType.UNDEF));
-            }
-        } else {
+        if (device.isEmpty()) {
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
                     "Could not find device in internal model, check deviceId configuration");
-            thing.getChannels().forEach(e -> updateState(e.getUID(), UnDefType.UNDEF));
+            undefChannels();
+            return CompletableFuture.completedFuture(PollOutcome.FAILED);
+        }
+
+        // The permit is only taken if a request is sent
+        return accountHandler.getDeviceStatusCache().fetch(deviceId,
+                () -> permit.get().thenCompose(waited -> fetchDeviceDetails(device.get())));
+    }
+
+    private CompletableFuture<PollOutcome> fetchDeviceDetails(Device device) {
+        final GetDeviceRequest getDeviceDetailsRequest = new GetDeviceRequest(deviceId);
+        return accountHandler.getApiBridge()
+                .<DeviceDTO> sendRequestIfChangedAsync(getDeviceDetailsRequest, WireCodec.DEVICE,
+                        device.getDetailsFingerprint())
+                .handle((response, e) -> processDeviceDetails(device, response, e));
+    }
+
+    private PollOutcome processDeviceDetails(Device device, @Nullable FingerprintedResponse<DeviceDTO> response,
+            @Nullable Throwable error) {
+        if (response == null) {
+            Throwable cause = error == null ? null : ApiBridge.unwrap(error);
+            if (cause instanceof CircuitOpenException) {
+                logger.debug("Skipping refresh of device {}: {}", deviceId, cause.getMessage());
+            } else {
+                if (!(cause instanceof PanasonicComfortCloudException)) {
+                    logger.warn("Unexpected error retrieving device {}", deviceId, cause);
+                }
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                        "Error retrieving data from server: " + (cause == null ? "" : cause.getMessage()));
+            }
+            refreshFailed();
+            return PollOutcome.FAILED;
+        }
+
+        final DeviceDTO updatedDeviceDetails = response.getResponse();
+        if (updatedDeviceDetails == null) {
+            // Identical to what is already merged and published
+            device.markUnchanged(response.getFingerprint().getTimestamp());
+            refreshSucceeded();
+            updateStatus(ThingStatus.ONLINE);
+            return PollOutcome.UNCHANGED;
         }
+
+        boolean changed = device.mergeFromDeviceDetails(updatedDeviceDetails);
+        device.setDetailsFingerprint(response.getFingerprint().getValue());
+        Map<String, String> properties = device.getThingProperties();
+        updateThing(editThing().withProperties(properties).build());
+        refreshSucceeded();
+        updateStatus(ThingStatus.ONLINE);
+        publishChannels(device);
+        accountHandler.modelChanged();
+        return changed ? PollOutcome.UPDATED : PollOutcome.UNCHANGED;
+    }
+
+    /**
+     * Publish the last known state of the device, ie restored from the persisted model, without waiting for the first
+     * poll. The state counts as confirmed by the server when the device last reported it, and is flagged as stale until
+     * a poll confirms it. A state older than <code>maxStaleness</code> is not published.
+     *
+     * @return true if a known state was published
+     */
+    protected boolean publishKnownState() {
+        Optional<Device> device = accountHandler.getModel().findDeviceByDeviceId(deviceId);
+        if (device.isEmpty() || !device.get().isInitialized()) {
+            return false;
+        }
+        Instant lastUpdated = device.get().getLastUpdated();
+        if (lastUpdated == null || Duration.between(lastUpdated, Instant.now()).compareTo(maxStaleness) >= 0) {
+            logger.debug("Last known state of device {} is too old to publish", deviceId);
+            return false;
+        }
+        synchronized (this) {
+            lastRefreshed = lastUpdated;
+            refreshFailed();
+        }
+        updateThing(editThing().withProperties(device.get().getThingProperties()).build());
+        updateStatus(ThingStatus.ONLINE);
+        publishChannels(device.get());
+        return true;
+    }
+
+    /**
+     * Publish the model state of the device on all channels, without fetching it
+     */
+    private void publishChannels(Device device) {
+        thing.getChannels().forEach(e -> handleCommand(e.getUID(), RefreshType.REFRESH, device));
     }
 
     @Override
     public void dispose() {
-        getThing().getChannels().forEach(channel -> updateState(channel.getUID(), UnDefType.UNDEF));
+        removeStalenessGauge();
+        undefChannels();
         super.dispose();
     }
 
+    /**
+     * The device state could not be refreshed, or is restored and not yet refreshed. The published state is kept, and
+     * flagged as stale, until <code>maxStaleness</code> has passed since it was last confirmed by the server. After
+     * that all channels are set to UNDEF.
+     */
+    protected synchronized void refreshFailed() {
+        Instant refreshed = lastRefreshed;
+        Duration remaining = refreshed == null ? Duration.ZERO
+                : maxStaleness.minus(Duration.between(refreshed, Instant.now()));
+        if (remaining.isNegative() || remaining.isZero()) {
+            undefChannels();
+            return;
+        }
+        if (!stale) {
+            logger.debug("Keeping last known state of device {} for up to {} seconds", deviceId,
+                    remaining.toSeconds());
+            stale = true;
+            publishStale();
+        }
+        if (staleExpiry == null) {
+            // Polls may stop altogether while the account is offline, expire the state without relying on them
+            staleExpiry = scheduler.schedule(this::staleStateExpired, remaining.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void staleStateExpired() {
+        staleExpiry = null;
+        if (stale) {
+            logger.info("No update from device {} for {} seconds, setting channels to undefined", deviceId,
+                    maxStaleness.toSeconds());
+            undefChannels();
+        }
+    }
+
+    private synchronized void refreshSucceeded() {
+        lastRefreshed = Instant.now();
+        cancelStaleExpiry();
+        if (stale) {
+            stale = false;
+            publishStale();
+        }
+    }
+
+    private void cancelStaleExpiry() {
+        ScheduledFuture<?> expiry = staleExpiry;
+        if (expiry != null) {
+            expiry.cancel(false);
+            staleExpiry = null;
+        }
+    }
+
+    private void publishStale() {
+        if (getThing().getChannel(CHANNEL_STALE) != null) {
+            updateState(CHANNEL_STALE, OnOffType.from(stale));
+        }
+    }
+
+    /**
+     * @return true while the channels show the last known state, after updates have failed
+     */
+    protected synchronized boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Set all channels to UNDEF. The next device status response is merged and published in full, even if identical to
+     * the previous one.
+     */
+    protected synchronized void undefChannels() {
+        lastRefreshed = null;
+        stale = false;
+        cancelStaleExpiry();
+        if (accountHandler != null && deviceId != null) {
+            accountHandler.getModel().findDeviceByDeviceId(deviceId).ifPresent(Device::clearDetailsFingerprint);
+        }
+        getThing().getChannels().forEach(channel -> updateState(channel.getUID(), UnDefType.UNDEF));
+    }
+
     @Override
     public void handleCommand(final ChannelUID channelUID, final Command command) {
         Optional<Device> device = accountHandler.getModel().findDeviceByDeviceId(deviceId);
         if (device.isPresent()) {
             handleCommand(channelUID, command, device.get());
+            if (command instanceof RefreshType && isPollable()) {
+                // Refreshing every channel, or refreshing right after a poll, costs at most one request
+                loadFromServer();
+            }
         } else {
             logger.debug("Ignoring command {} for channel {}, device {} is unknown", command, channelUID, deviceId);
         }
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,11 +33,15 @@ import org.openhab.core.thing.binding.BaseThingHandlerFactory;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.thing.binding.ThingHandlerFactory;
 import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 
+import io.micrometer.core.instrument.Metrics;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.BindingConstants;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.SharedTransport;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.discovery.PanasonicComfortCloudDiscoveryService;
 
 /**
@@ -53,12 +58,32 @@ public class PanasonicComfortCloudHandlerFactory extends BaseThingHandlerFactory
                     .collect(Collectors.toSet()));
     private Map<ThingUID, ServiceRegistration<?>> discoveryServiceRegs = new HashMap<>();
     private StorageService storageService;
+    private final SharedTransport transport = new SharedTransport();
+    // Accounts using the transport, which is shut down once the factory is deactivated and all of them are removed
+    private final Set<ThingHandler> accountHandlers = ConcurrentHashMap.newKeySet();
+    private boolean deactivated;
 
     @Activate
     public PanasonicComfortCloudHandlerFactory(@Reference StorageService storageService) {
         this.storageService = storageService;
     }
 
+    @Override
+    @Deactivate
+    protected void deactivate(ComponentContext componentContext) {
+        super.deactivate(componentContext);
+        synchronized (this) {
+            deactivated = true;
+        }
+        shutdownTransportIfUnused();
+    }
+
+    private synchronized void shutdownTransportIfUnused() {
+        if (deactivated && accountHandlers.isEmpty()) {
+            transport.shutdown();
+        }
+    }
+
     @Override
     protected @Nullable ThingHandler createHandler(final Thing thing) {
         final ThingTypeUID thingTypeUID = thing.getThingTypeUID();
@@ -66,7 +91,8 @@ public class PanasonicComfortCloudHandlerFactory extends BaseThingHandlerFactory
             return new PanasonicComfortCloudAirconditionHandler(thing);
         } else if (BindingConstants.THING_TYPE_ACCOUNT.equals(thingTypeUID)) {
             PanasonicComfortCloudAccountHandler handler = new PanasonicComfortCloudAccountHandler((Bridge) thing,
-                    storageService);
+                    storageService, transport, Metrics.globalRegistry);
+            accountHandlers.add(handler);
             registerDeviceDiscoveryService(handler);
             return handler;
         }
@@ -95,6 +121,10 @@ public class PanasonicComfortCloudHandlerFactory extends BaseThingHandlerFactory
             unregisterDeviceDiscoveryService(thingUID);
         }
         super.removeHandler(thingHandler);
+        // Handlers are disposed before they are removed
+        if (accountHandlers.remove(thingHandler)) {
+            shutdownTransportIfUnused();
+        }
     }
 
     @Override
@@ -26,21 +26,25 @@ import org.openhab.core.library.unit.SIUnits;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
 
 /**
+ * A device of an account. Instances are shared by consecutive {@link GroupModel} snapshots and updated in place, from
+ * the HTTP client's threads, so every field is volatile. Fields are updated one by one; {@link #isInitialized()} is
+ * written last, so once it returns true the state of the first status response is visible.
+ *
  * @author Arne Seime - Initial contribution
  */
 public class Device {
 
-    private Group group;
-    private String deviceId;
-    private String type; // Figure out what this is
-    private String name;
-    private Integer permission; // Figure out what this is
-    private Integer summerhouse; // Figure out what this is
-    private String deviceModel;
+    private volatile Group group;
+    private volatile String deviceId;
+    private volatile String type; // Figure out what this is
+    private volatile String name;
+    private volatile Integer permission; // Figure out what this is
+    private volatile Integer summerhouse; // Figure out what this is
+    private volatile String deviceModel;
 
-    private FeatureSet featureSet;
+    private volatile FeatureSet featureSet;
 
-    private Unit<Temperature> temperatureUnit;
+    private volatile Unit<Temperature> temperatureUnit;
     /**
      * TODO modeAvlList - figure out what it is
      * * "modeAvlList": {
@@ -48,18 +52,31 @@ public class Device {
      * "fanMode": 1
      * },
      */
-    private Boolean coordinableFlg;
-    private Boolean pairedFlg;
+    private volatile Boolean coordinableFlg;
+    private volatile Boolean pairedFlg;
+
+    private volatile Instant lastUpdated;
+
+    /**
+     * Replaced as a whole, either by a poll or by a change accepted by the server
+     */
+    private volatile Parameters currentParameters;
 
-    private Instant lastUpdated;
+    /**
+     * Fingerprint of the last device status response merged into this device, 0 if none
+     */
+    private volatile long detailsFingerprint;
 
-    private Parameters currentParameters;
+    /**
+     * The last device status response merged into this device, kept for persisting the model
+     */
+    private volatile DeviceDTO details;
 
     public Parameters getCurrentParameters() {
         return currentParameters;
     }
 
-    private boolean isInitialized = false;
+    private volatile boolean isInitialized = false;
 
     public Device(Group group) {
         this.group = group;
@@ -72,17 +89,67 @@ public class Device {
         this.name = dto.deviceName;
     }
 
-    public void mergeFromDeviceDetails(DeviceDTO dto) {
+    /**
+     * @return true if the device state changed significantly compared to the previous update
+     * @see Parameters#isSignificantlyChangedFrom(Parameters)
+     */
+    public boolean mergeFromDeviceDetails(DeviceDTO dto) {
+        this.details = dto;
         this.featureSet = new FeatureSet(dto);
 
         this.permission = dto.permission;
         this.summerhouse = dto.summerHouse;
         this.temperatureUnit = dto.temperatureUnit == 0 ? SIUnits.CELSIUS : ImperialUnits.FAHRENHEIT;
 
-        currentParameters = new Parameters(dto.parameters, this);
+        Parameters parameters = new Parameters(dto.parameters, this);
+        Parameters previousParameters;
+        synchronized (this) {
+            previousParameters = currentParameters;
+            currentParameters = parameters;
+        }
 
         this.lastUpdated = Instant.ofEpochMilli(dto.timestamp);
         this.isInitialized = true;
+        return previousParameters == null || parameters.isSignificantlyChangedFrom(previousParameters);
+    }
+
+    /**
+     * Apply a change the server has accepted. The model then no longer matches the last merged response, so the next
+     * poll is always merged, even if identical to the previous one.
+     */
+    public void applyDelta(ParametersDelta delta) {
+        synchronized (this) {
+            currentParameters = currentParameters.apply(delta);
+        }
+        clearDetailsFingerprint();
+    }
+
+    /**
+     * Register that the server returned the same snapshot as last time, only the timestamp may have moved
+     */
+    public void markUnchanged(Long timestamp) {
+        if (timestamp != null) {
+            this.lastUpdated = Instant.ofEpochMilli(timestamp);
+        }
+    }
+
+    public DeviceDTO getDetails() {
+        return details;
+    }
+
+    public long getDetailsFingerprint() {
+        return detailsFingerprint;
+    }
+
+    public void setDetailsFingerprint(long detailsFingerprint) {
+        this.detailsFingerprint = detailsFingerprint;
+    }
+
+    /**
+     * Force the next device status response to be fully merged, even if it is identical to the previous one
+     */
+    public void clearDetailsFingerprint() {
+        this.detailsFingerprint = 0;
     }
 
     public String getDeviceId() {
@@ -129,10 +196,6 @@ public class Device {
         return lastUpdated;
     }
 
-    public Parameters createSendRequestParameters() {
-        return new Parameters(currentParameters.getMode(), currentParameters.isMasterSwitch(), currentParameters);
-    }
-
     public Map<String, String> getThingProperties() {
         Map<String, String> properties = new HashMap<>();
         properties.put("deviceId", deviceId);
@@ -171,6 +234,10 @@ public class Device {
         return group;
     }
 
+    void setGroup(Group group) {
+        this.group = group;
+    }
+
     public void setType(String deviceType) {
         this.type = deviceType;
     }
@@ -12,33 +12,38 @@
  */
 package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GroupDTO;
-
 /**
+ * A group of devices as listed by the server. Immutable once published as part of a {@link GroupModel} snapshot.
+ *
  * @author Arne Seime - Initial contribution
  */
 public class Group {
-    private String id;
-    private String name;
-    private List<Device> devices = new ArrayList<>();
+    private final String id;
+    private final String name;
+    private final List<Device> devices;
 
-    public void addDevice(Device device) {
-        devices.add(device);
-    }
-
-    public List<Device> getDevices() {
-        return devices;
+    /**
+     * Group without id or devices, for devices not part of a group listing
+     */
+    public Group() {
+        this(null, null, List.of());
     }
 
-    public Group() {
+    /**
+     * @param devices devices of the group. The list is owned by the group, and must not be modified after the group
+     *            is published.
+     */
+    Group(String id, String name, List<Device> devices) {
+        this.id = id;
+        this.name = name;
+        this.devices = Collections.unmodifiableList(devices);
     }
 
-    public void mergeFrom(GroupDTO dto) {
-        this.id = dto.groupId;
-        this.name = dto.groupName;
+    public List<Device> getDevices() {
+        return devices;
     }
 
     public String getId() {
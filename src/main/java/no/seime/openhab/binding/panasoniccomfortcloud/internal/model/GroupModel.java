@@ -13,39 +13,114 @@
 package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GroupDTO;
+
 /**
+ * Snapshot of the groups and devices of an account. Groups are indexed by groupId and devices by deviceGuid, so
+ * lookups do not depend on the size of the account.
+ * <p>
+ * Merging a group listing creates a new snapshot with new group lists and indexes, so readers iterating or looking up
+ * in a snapshot need no locking. The {@link Device} instances are not copied: they are shared with the new snapshot
+ * and updated in place, so readers of an older snapshot see the current state of a device, its group included.
+ *
  * @author Arne Seime - Initial contribution
  */
 public class GroupModel {
     private final long lastUpdated;
+    private final List<Group> groups;
+    private final Map<String, Group> groupsById;
+    private final Map<String, Device> devicesById;
 
+    /**
+     * Empty model
+     */
     public GroupModel(final long lastUpdated) {
+        this(lastUpdated, List.of(), Map.of(), Map.of());
+    }
+
+    private GroupModel(final long lastUpdated, List<Group> groups, Map<String, Group> groupsById,
+            Map<String, Device> devicesById) {
         this.lastUpdated = lastUpdated;
+        this.groups = Collections.unmodifiableList(groups);
+        this.groupsById = groupsById;
+        this.devicesById = devicesById;
     }
 
     public List<Group> getGroups() {
         return groups;
     }
 
-    private final List<Group> groups = new ArrayList<>();
-
-    public void addGroup(final Group group) {
-        groups.add(group);
-    }
-
     public long getLastUpdated() {
         return lastUpdated;
     }
 
+    public Optional<Group> findGroupById(String groupId) {
+        return Optional.ofNullable(groupsById.get(groupId));
+    }
+
     public Optional<Device> findDeviceByDeviceId(String deviceId) {
-        return groups.stream().flatMap(e -> e.getDevices().stream()).filter(e -> deviceId.equals(e.getDeviceId()))
-                .findFirst();
+        return Optional.ofNullable(devicesById.get(deviceId));
     }
 
-    public void clear() {
-        groups.clear();
+    /**
+     * Merge a group listing into a new snapshot. Devices already known are reused and updated in place, and groups
+     * and devices missing from the listing are kept. Runs in time linear in the size of the model and the listing.
+     *
+     * @return the merged snapshot. The groups and indexes of this snapshot are left unchanged, its devices are not.
+     */
+    public GroupModel mergeFrom(GroupDTO[] groupList) {
+        List<Group> mergedGroups = new ArrayList<>(groupList.length);
+        Map<String, Group> mergedGroupsById = new HashMap<>();
+        Map<String, Device> mergedDevicesById = new HashMap<>();
+        Map<String, List<Device>> devicesByGroupId = new HashMap<>();
+
+        for (GroupDTO groupDto : groupList) {
+            List<Device> devices = new ArrayList<>(groupDto.devices.length);
+            Group group = new Group(groupDto.groupId, groupDto.groupName, devices);
+
+            for (DeviceDTO deviceDto : groupDto.devices) {
+                // Some device details come from the getGroups call, others come from each device call
+                Device device = devicesById.get(deviceDto.deviceGuid);
+                if (device == null) {
+                    device = new Device(group);
+                } else {
+                    device.setGroup(group);
+                }
+                device.mergeFromGroupList(deviceDto);
+                devices.add(device);
+                mergedDevicesById.put(device.getDeviceId(), device);
+            }
+            mergedGroups.add(group);
+            mergedGroupsById.put(group.getId(), group);
+            devicesByGroupId.put(group.getId(), devices);
+        }
+
+        // Keep groups and devices missing from the listing
+        for (Group previous : groups) {
+            List<Device> devices = devicesByGroupId.get(previous.getId());
+            Group group = mergedGroupsById.get(previous.getId());
+            if (group == null) {
+                devices = new ArrayList<>();
+                group = new Group(previous.getId(), previous.getName(), devices);
+                mergedGroups.add(group);
+                mergedGroupsById.put(group.getId(), group);
+            }
+            for (Device device : previous.getDevices()) {
+                if (!mergedDevicesById.containsKey(device.getDeviceId())) {
+                    device.setGroup(group);
+                    devices.add(device);
+                    mergedDevicesById.put(device.getDeviceId(), device);
+                }
+            }
+        }
+
+        return new GroupModel(System.currentTimeMillis(), mergedGroups, mergedGroupsById, mergedDevicesById);
     }
 }
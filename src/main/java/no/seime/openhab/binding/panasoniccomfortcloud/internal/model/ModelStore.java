@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
+
+import java.util.Map;
+
+import org.openhab.core.storage.Storage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GroupDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.ParametersDTO;
+
+/**
+ * Persists a {@link GroupModel} between restarts, so that things can publish their last known state before the first
+ * poll. The snapshot holds the group listing and the last device status response of every device, in the wire
+ * format, with the parameters of the response replaced by the current parameters of the device. Restoring merges them
+ * through the same path as responses from the server.
+ *
+ * @author agent - Initial contribution
+ */
+public class ModelStore {
+    private static final int VERSION = 1;
+    private static final TypeAdapter<GroupDTO> GROUP = WireCodec.adapterFor(GroupDTO.class);
+    private static final TypeAdapter<DeviceDTO> DEVICE = WireCodec.adapterFor(DeviceDTO.class);
+    private static final TypeAdapter<ParametersDTO> PARAMETERS = WireCodec.adapterFor(ParametersDTO.class);
+
+    private final Logger logger = LoggerFactory.getLogger(ModelStore.class);
+    private final Storage<String> storage;
+    private final String key;
+
+    /**
+     * @param account identifies the account, as several accounts may share the storage
+     */
+    public ModelStore(Storage<String> storage, String account) {
+        this.storage = storage;
+        this.key = "model." + account;
+    }
+
+    public void save(GroupModel model) {
+        JsonArray groups = new JsonArray();
+        JsonArray devices = new JsonArray();
+        for (Group group : model.getGroups()) {
+            GroupDTO groupDto = new GroupDTO();
+            groupDto.groupId = group.getId();
+            groupDto.groupName = group.getName();
+            groupDto.devices = new DeviceDTO[group.getDevices().size()];
+            for (int i = 0; i < groupDto.devices.length; i++) {
+                Device device = group.getDevices().get(i);
+                groupDto.devices[i] = listingOf(device);
+                if (device.isInitialized()) {
+                    devices.add(detailsOf(device));
+                }
+            }
+            groups.add(GROUP.toJsonTree(groupDto));
+        }
+
+        JsonObject snapshot = new JsonObject();
+        snapshot.addProperty("version", VERSION);
+        snapshot.add("groups", groups);
+        snapshot.add("devices", devices);
+        storage.put(key, snapshot.toString());
+    }
+
+    private static DeviceDTO listingOf(Device device) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.deviceGuid = device.getDeviceId();
+        dto.deviceType = device.getType();
+        dto.deviceModuleNumber = device.getDeviceModel();
+        dto.deviceName = device.getName();
+        return dto;
+    }
+
+    private static JsonObject detailsOf(Device device) {
+        JsonObject details = DEVICE.toJsonTree(device.getDetails()).getAsJsonObject();
+        // Status responses do not always carry the id
+        details.addProperty("deviceGuid", device.getDeviceId());
+        // Changes accepted by the server since the last poll are only reflected in the current parameters
+        JsonElement received = details.get("parameters");
+        JsonObject parameters = received != null && received.isJsonObject() ? received.getAsJsonObject()
+                : new JsonObject();
+        JsonObject current = PARAMETERS.toJsonTree(device.getCurrentParameters().toParametersDTO(device))
+                .getAsJsonObject();
+        for (Map.Entry<String, JsonElement> entry : current.entrySet()) {
+            // Measured values are not part of the current parameters' wire format, keep the received ones
+            if (!entry.getValue().isJsonNull()) {
+                parameters.add(entry.getKey(), entry.getValue());
+            }
+        }
+        details.add("parameters", parameters);
+        return details;
+    }
+
+    /**
+     * @return the persisted model, or an empty model if none was persisted or it could not be read
+     */
+    public GroupModel load() {
+        String json = storage.get(key);
+        if (json == null) {
+            return new GroupModel(0);
+        }
+        try {
+            JsonObject snapshot = JsonParser.parseString(json).getAsJsonObject();
+            if (!snapshot.has("version") || snapshot.get("version").getAsInt() != VERSION
+                    || !snapshot.has("groups") || !snapshot.has("devices")) {
+                logger.debug("Discarding stored model of unknown format");
+                storage.remove(key);
+                return new GroupModel(0);
+            }
+
+            JsonArray groups = snapshot.getAsJsonArray("groups");
+            GroupDTO[] groupList = new GroupDTO[groups.size()];
+            for (int i = 0; i < groupList.length; i++) {
+                groupList[i] = GROUP.fromJsonTree(groups.get(i));
+            }
+            GroupModel model = new GroupModel(0).mergeFrom(groupList);
+            for (JsonElement element : snapshot.getAsJsonArray("devices")) {
+                DeviceDTO details = DEVICE.fromJsonTree(element);
+                if (details != null && details.deviceGuid != null && details.parameters != null) {
+                    model.findDeviceByDeviceId(details.deviceGuid)
+                            .ifPresent(device -> device.mergeFromDeviceDetails(details));
+                }
+            }
+            return model;
+        } catch (JsonParseException | IllegalStateException | ClassCastException e) {
+            logger.debug("Discarding unreadable stored model: {}", e.getMessage());
+            storage.remove(key);
+            return new GroupModel(0);
+        }
+    }
+
+    public void clear() {
+        storage.remove(key);
+    }
+}
@@ -12,33 +12,37 @@
  */
 package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
 
+import java.util.Objects;
+
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.ParametersDTO;
 
 /**
+ * Immutable snapshot of the parameters of a device. Requested changes are described by a {@link ParametersDelta} and
+ * applied with {@link #apply(ParametersDelta)}.
+ *
  * @author Arne Seime - Initial contribution
  */
 public class Parameters {
 
-    private Parameters shadowParameters = null;
-    private AirSwingUpDown swingUpDown;
-    private AirSwingSideways airSwingSideways;
-    private OperationMode mode;
-    private EcoMode ecoMode;
-    private AirSwingAutoMode airSwingAutoMode;
-    private FanSpeed fanSpeed;
-    private NanoeMode nanoeMode;
-    private NanoeMode actualNanoeMode;
-    private Double targetTemperature;
-
-    private Integer ecoFunctionData;
-    private Integer lastSettingMode;
-    private Integer ecoNavi;
-    private Integer iAuto;
-    private Integer airQuality;
-    private Integer insideTemperature;
-    private Integer outsideTemperature;
-    private boolean masterSwitch;
-    private Integer airDirection;
+    private final AirSwingUpDown swingUpDown;
+    private final AirSwingSideways airSwingSideways;
+    private final OperationMode mode;
+    private final EcoMode ecoMode;
+    private final AirSwingAutoMode airSwingAutoMode;
+    private final FanSpeed fanSpeed;
+    private final NanoeMode nanoeMode;
+    private final NanoeMode actualNanoeMode;
+    private final Double targetTemperature;
+
+    private final Integer ecoFunctionData;
+    private final Integer lastSettingMode;
+    private final Integer ecoNavi;
+    private final Integer iAuto;
+    private final Integer airQuality;
+    private final Integer insideTemperature;
+    private final Integer outsideTemperature;
+    private final boolean masterSwitch;
+    private final Integer airDirection;
 
     /**
      * Parse from wire format
@@ -54,15 +58,9 @@ public class Parameters {
         actualNanoeMode = NanoeMode.parseValue(dto.actualNanoe);
         masterSwitch = dto.operate != null && dto.operate != 0;
 
-        if (dto.temperatureSet > 0 && dto.temperatureSet < 120) {
-            targetTemperature = dto.temperatureSet;
-        }
-        if (dto.insideTemperature > -50 && dto.insideTemperature < 120) {
-            insideTemperature = dto.insideTemperature;
-        }
-        if (dto.outTemperature > -50 && dto.outTemperature < 120) {
-            outsideTemperature = dto.outTemperature;
-        }
+        targetTemperature = dto.temperatureSet > 0 && dto.temperatureSet < 120 ? dto.temperatureSet : null;
+        insideTemperature = dto.insideTemperature > -50 && dto.insideTemperature < 120 ? dto.insideTemperature : null;
+        outsideTemperature = dto.outTemperature > -50 && dto.outTemperature < 120 ? dto.outTemperature : null;
 
         this.airQuality = dto.airQuality;
         this.ecoNavi = dto.ecoNavi;
@@ -72,15 +70,34 @@ public class Parameters {
         this.ecoFunctionData = dto.ecoFunctionData;
     }
 
-    public Parameters(OperationMode mode, boolean masterSwitch) {
-        this.setMode(mode);
-        this.setMasterSwitch(masterSwitch);
+    private Parameters(Parameters base, ParametersDelta delta) {
+        swingUpDown = delta.getSwingUpDown() != null ? delta.getSwingUpDown() : base.swingUpDown;
+        airSwingSideways = delta.getSwingSideways() != null ? delta.getSwingSideways() : base.airSwingSideways;
+        mode = delta.getMode() != null ? delta.getMode() : base.mode;
+        ecoMode = delta.getEcoMode() != null ? delta.getEcoMode() : base.ecoMode;
+        airSwingAutoMode = delta.getFanAutoMode() != null ? delta.getFanAutoMode() : base.airSwingAutoMode;
+        fanSpeed = delta.getFanSpeed() != null ? delta.getFanSpeed() : base.fanSpeed;
+        nanoeMode = delta.getNanoeMode() != null ? delta.getNanoeMode() : base.nanoeMode;
+        targetTemperature = delta.getTargetTemperature() != null ? delta.getTargetTemperature()
+                : base.targetTemperature;
+        masterSwitch = delta.getMasterSwitch() != null ? delta.getMasterSwitch() : base.masterSwitch;
+
+        actualNanoeMode = base.actualNanoeMode;
+        ecoFunctionData = base.ecoFunctionData;
+        lastSettingMode = base.lastSettingMode;
+        ecoNavi = base.ecoNavi;
+        iAuto = base.iAuto;
+        airQuality = base.airQuality;
+        insideTemperature = base.insideTemperature;
+        outsideTemperature = base.outsideTemperature;
+        airDirection = base.airDirection;
     }
 
-    public Parameters(OperationMode mode, boolean masterSwitch, Parameters currentParameters) {
-        this.setMode(mode);
-        this.setMasterSwitch(masterSwitch);
-        this.shadowParameters = currentParameters;
+    /**
+     * @return a copy of these parameters with the requested changes applied
+     */
+    public Parameters apply(ParametersDelta delta) {
+        return new Parameters(this, delta);
     }
 
     /**
@@ -122,6 +139,28 @@ public class Parameters {
         return dto;
     }
 
+    /**
+     * Compare with a previous state of the same device. Changes to settings always count, while measured values such as
+     * temperatures only count when the device is switched on - a switched off unit still reports drifting sensor
+     * values, but nothing that warrants polling it more often.
+     */
+    public boolean isSignificantlyChangedFrom(Parameters previous) {
+        boolean settingsChanged = masterSwitch != previous.masterSwitch || swingUpDown != previous.swingUpDown
+                || airSwingSideways != previous.airSwingSideways || mode != previous.mode
+                || ecoMode != previous.ecoMode || airSwingAutoMode != previous.airSwingAutoMode
+                || fanSpeed != previous.fanSpeed || nanoeMode != previous.nanoeMode
+                || !Objects.equals(targetTemperature, previous.targetTemperature)
+                || !Objects.equals(ecoNavi, previous.ecoNavi) || !Objects.equals(iAuto, previous.iAuto)
+                || !Objects.equals(airDirection, previous.airDirection);
+        if (settingsChanged || !masterSwitch) {
+            return settingsChanged;
+        }
+        return actualNanoeMode != previous.actualNanoeMode
+                || !Objects.equals(insideTemperature, previous.insideTemperature)
+                || !Objects.equals(outsideTemperature, previous.outsideTemperature)
+                || !Objects.equals(airQuality, previous.airQuality);
+    }
+
     public AirSwingUpDown getSwingUpDown() {
         return swingUpDown;
     }
@@ -193,67 +232,4 @@ public class Parameters {
     public Integer getAirDirection() {
         return airDirection;
     }
-
-    public void setSwingUpDown(AirSwingUpDown airSwingUpDown) {
-        this.swingUpDown = airSwingUpDown;
-        if (shadowParameters != null) {
-            this.shadowParameters.setSwingUpDown(this.swingUpDown);
-        }
-    }
-
-    public void setSwingSideways(AirSwingSideways airSwingSideways) {
-        this.airSwingSideways = airSwingSideways;
-        if (shadowParameters != null) {
-            this.shadowParameters.setSwingSideways(airSwingSideways);
-        }
-    }
-
-    public void setMode(OperationMode mode) {
-        this.mode = mode;
-        if (shadowParameters != null) {
-            this.shadowParameters.setMode(mode);
-        }
-    }
-
-    public void setEcoMode(EcoMode ecoMode) {
-        this.ecoMode = ecoMode;
-        if (shadowParameters != null) {
-            this.shadowParameters.setEcoMode(ecoMode);
-        }
-    }
-
-    public void setFanAutoMode(AirSwingAutoMode airSwingAutoMode) {
-        this.airSwingAutoMode = airSwingAutoMode;
-        if (shadowParameters != null) {
-            this.shadowParameters.setFanAutoMode(airSwingAutoMode);
-        }
-    }
-
-    public void setFanSpeed(FanSpeed fanSpeed) {
-        this.fanSpeed = fanSpeed;
-        if (shadowParameters != null) {
-            this.shadowParameters.setFanSpeed(fanSpeed);
-        }
-    }
-
-    public void setNanoeMode(NanoeMode nanoeMode) {
-        this.nanoeMode = nanoeMode;
-        if (shadowParameters != null) {
-            this.shadowParameters.setNanoeMode(nanoeMode);
-        }
-    }
-
-    public void setTargetTemperature(Double targetTemperature) {
-        this.targetTemperature = targetTemperature;
-        if (shadowParameters != null) {
-            this.shadowParameters.setTargetTemperature(targetTemperature);
-        }
-    }
-
-    public void setMasterSwitch(boolean masterSwitch) {
-        this.masterSwitch = masterSwitch;
-        if (shadowParameters != null) {
-            this.shadowParameters.setMasterSwitch(masterSwitch);
-        }
-    }
 }
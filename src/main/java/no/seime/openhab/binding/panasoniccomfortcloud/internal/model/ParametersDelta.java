@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.ParametersDTO;
+
+/**
+ * Requested changes to the parameters of a device. Fields left null are not changed. The delta is only applied to the
+ * device model once the server has accepted it, see {@link Device#applyDelta(ParametersDelta)}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ParametersDelta {
+
+    private AirSwingUpDown swingUpDown;
+    private AirSwingSideways swingSideways;
+    private OperationMode mode;
+    private EcoMode ecoMode;
+    private AirSwingAutoMode fanAutoMode;
+    private FanSpeed fanSpeed;
+    private NanoeMode nanoeMode;
+    private Double targetTemperature;
+    private Boolean masterSwitch;
+
+    /**
+     * Convert to wire format. Operation mode and master switch are always sent and taken from the current parameters
+     * unless changed, all other values are only sent when changed.
+     */
+    public ParametersDTO toParametersDTO(Parameters current, Device device) {
+        ParametersDTO dto = new ParametersDTO();
+
+        if (!device.getFeatureSet().getSupportedSwingUpDownModes().isEmpty() && swingUpDown != null) {
+            dto.airSwingUD = swingUpDown.value;
+        }
+
+        if (!device.getFeatureSet().getSupportedSwingSidewayModes().isEmpty() && swingSideways != null) {
+            dto.airSwingLR = swingSideways.value;
+        }
+
+        dto.operationMode = getMode(current).value;
+
+        dto.ecoMode = ecoMode != null ? ecoMode.value : null;
+        dto.fanAutoMode = fanAutoMode != null ? fanAutoMode.value : null;
+        dto.fanSpeed = fanSpeed != null ? fanSpeed.value : null;
+        dto.nanoe = nanoeMode != null ? nanoeMode.value : null;
+
+        dto.operate = (masterSwitch != null ? masterSwitch : current.isMasterSwitch()) ? 1 : 0;
+        dto.temperatureSet = targetTemperature;
+
+        return dto;
+    }
+
+    public AirSwingUpDown getSwingUpDown() {
+        return swingUpDown;
+    }
+
+    public AirSwingSideways getSwingSideways() {
+        return swingSideways;
+    }
+
+    public OperationMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the operation mode the device will be in once the delta is applied to the current parameters
+     */
+    public OperationMode getMode(Parameters current) {
+        return mode != null ? mode : current.getMode();
+    }
+
+    public EcoMode getEcoMode() {
+        return ecoMode;
+    }
+
+    public AirSwingAutoMode getFanAutoMode() {
+        return fanAutoMode;
+    }
+
+    public FanSpeed getFanSpeed() {
+        return fanSpeed;
+    }
+
+    public NanoeMode getNanoeMode() {
+        return nanoeMode;
+    }
+
+    public Double getTargetTemperature() {
+        return targetTemperature;
+    }
+
+    public Boolean getMasterSwitch() {
+        return masterSwitch;
+    }
+
+    public void setSwingUpDown(AirSwingUpDown swingUpDown) {
+        this.swingUpDown = swingUpDown;
+    }
+
+    public void setSwingSideways(AirSwingSideways swingSideways) {
+        this.swingSideways = swingSideways;
+    }
+
+    public void setMode(OperationMode mode) {
+        this.mode = mode;
+    }
+
+    public void setEcoMode(EcoMode ecoMode) {
+        this.ecoMode = ecoMode;
+    }
+
+    public void setFanAutoMode(AirSwingAutoMode fanAutoMode) {
+        this.fanAutoMode = fanAutoMode;
+    }
+
+    public void setFanSpeed(FanSpeed fanSpeed) {
+        this.fanSpeed = fanSpeed;
+    }
+
+    public void setNanoeMode(NanoeMode nanoeMode) {
+        this.nanoeMode = nanoeMode;
+    }
+
+    public void setTargetTemperature(Double targetTemperature) {
+        this.targetTemperature = targetTemperature;
+    }
+
+    public void setMasterSwitch(boolean masterSwitch) {
+        this.masterSwitch = masterSwitch;
+    }
+
+    @Override
+    public String toString() {
+        return "ParametersDelta{" + "swingUpDown=" + swingUpDown + ", swingSideways=" + swingSideways + ", mode="
+                + mode + ", ecoMode=" + ecoMode + ", fanAutoMode=" + fanAutoMode + ", fanSpeed=" + fanSpeed
+                + ", nanoeMode=" + nanoeMode + ", targetTemperature=" + targetTemperature + ", masterSwitch="
+                + masterSwitch + '}';
+    }
+}
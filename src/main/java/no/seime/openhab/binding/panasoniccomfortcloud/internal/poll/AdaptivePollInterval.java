@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Per device polling interval that adapts to how often the device state actually changes. Every poll without changes
+ * stretches the interval by {@link #GROWTH_FACTOR} up to the upper bound, while a poll with changes halves it down to
+ * the lower bound. A command sent to the device snaps the interval back to the lower bound and makes the device due
+ * immediately, so the result of the command is picked up by the next poll cycle.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class AdaptivePollInterval {
+    static final double GROWTH_FACTOR = 1.5;
+
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private Duration interval;
+    private Instant nextDue = Instant.MIN;
+    private long polls;
+    private long changes;
+
+    public AdaptivePollInterval(Duration minInterval, Duration maxInterval) {
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval.compareTo(minInterval) < 0 ? minInterval : maxInterval;
+        this.interval = minInterval;
+    }
+
+    public synchronized boolean isDue(Instant now) {
+        return !now.isBefore(nextDue);
+    }
+
+    public synchronized void recordPoll(Instant now, PollOutcome outcome) {
+        switch (outcome) {
+            case UPDATED:
+                polls++;
+                changes++;
+                interval = max(minInterval, interval.dividedBy(2));
+                break;
+            case UNCHANGED:
+                polls++;
+                interval = min(maxInterval, Duration.ofMillis((long) (interval.toMillis() * GROWTH_FACTOR)));
+                break;
+            case CACHED:
+                // Not an observation of the device, the fetch that was reused was recorded by whoever sent it
+                return;
+            case FAILED:
+            default:
+                // Keep the interval, but retry at the fastest rate
+                nextDue = now.plus(minInterval);
+                return;
+        }
+        nextDue = now.plus(interval);
+    }
+
+    public synchronized void recordCommand(Instant now) {
+        interval = minInterval;
+        nextDue = now;
+    }
+
+    public synchronized Duration getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return fraction of polls that observed a change in device state
+     */
+    public synchronized double getChangeRate() {
+        return polls == 0 ? 1.0 : (double) changes / polls;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
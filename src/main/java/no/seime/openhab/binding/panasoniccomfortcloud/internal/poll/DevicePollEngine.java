@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DevicePollEngine} runs a refresh of all devices of an account as one unit of work. Devices that need a
+ * device status request are run through a pipeline bounded by a maximum number of concurrent requests and the
+ * account's {@link RequestBudget}. A single {@link PollCycleResult} is published when the whole cycle is done.
+ * <p>
+ * Whether a device needs a request is decided by its {@link AdaptivePollInterval}, so devices that rarely change are
+ * polled less often than devices that are in active use.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class DevicePollEngine {
+    private final Logger logger = LoggerFactory.getLogger(DevicePollEngine.class);
+    private final ScheduledExecutorService scheduler;
+    private final RequestBudget budget;
+    private final int parallelism;
+    private final PollCycleListener listener;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Map<String, AdaptivePollInterval> intervals = new ConcurrentHashMap<>();
+    private final AtomicLong cycleCounter = new AtomicLong();
+    private final Supplier<Instant> clock;
+    private volatile boolean stopped;
+
+    public DevicePollEngine(ScheduledExecutorService scheduler, RequestBudget budget, int parallelism,
+            Duration minInterval, Duration maxInterval, PollCycleListener listener) {
+        this(scheduler, budget, parallelism, minInterval, maxInterval, listener, Instant::now);
+    }
+
+    DevicePollEngine(ScheduledExecutorService scheduler, RequestBudget budget, int parallelism, Duration minInterval,
+            Duration maxInterval, PollCycleListener listener, Supplier<Instant> clock) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.budget = budget;
+        this.parallelism = Math.max(1, parallelism);
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.listener = listener;
+    }
+
+    /**
+     * Start one poll cycle over the given targets. No thread is blocked while the cycle runs; waiting for request
+     * budget is done by scheduling, and device requests complete asynchronously.
+     *
+     * @return future completed when all device requests of the cycle have completed
+     */
+    public CompletableFuture<PollCycleResult> runCycle(Collection<? extends PollTarget> targets) {
+        Cycle cycle = new Cycle(cycleCounter.incrementAndGet(), targets);
+        if (cycle.due.isEmpty()) {
+            cycle.complete();
+        } else {
+            for (int i = 0; i < Math.min(parallelism, cycle.due.size()); i++) {
+                cycle.launchNext();
+            }
+        }
+        return cycle.result;
+    }
+
+    /**
+     * Make the device due for polling in the next cycle and reset it to the fastest polling interval
+     */
+    public void commandSent(String deviceId) {
+        getInterval(deviceId).recordCommand(clock.get());
+    }
+
+    /**
+     * Stop running cycles. Polls in flight complete, but no further targets are polled and cycle results are no longer
+     * published to the listener. The futures of the cycles still complete.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    AdaptivePollInterval getInterval(String deviceId) {
+        return intervals.computeIfAbsent(deviceId, e -> new AdaptivePollInterval(minInterval, maxInterval));
+    }
+
+    public RequestBudget getBudget() {
+        return budget;
+    }
+
+    private class Cycle {
+        private final long cycleNumber;
+        private final Instant started = clock.get();
+        private final long startNanos = System.nanoTime();
+        private final int candidates;
+        private final List<PollTarget> due;
+        private final Queue<PollTarget> pending;
+        private final AtomicInteger remaining;
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong budgetWaitMillis = new AtomicLong();
+        private final CompletableFuture<PollCycleResult> result = new CompletableFuture<>();
+        private volatile boolean aborted;
+
+        Cycle(long cycleNumber, Collection<? extends PollTarget> targets) {
+            this.cycleNumber = cycleNumber;
+            this.candidates = targets.size();
+            this.due = targets.stream().filter(e -> e.isPollable() && getInterval(e.getDeviceId()).isDue(started))
+                    .collect(Collectors.toList());
+            this.pending = new ConcurrentLinkedQueue<>(due);
+            this.remaining = new AtomicInteger(due.size());
+        }
+
+        /**
+         * Start polling the next pending target. Each call forms one lane of the pipeline, which picks up the next
+         * target when the current one completes.
+         */
+        void launchNext() {
+            @Nullable
+            PollTarget target = pending.poll();
+            while (target != null && (stopped || aborted)) {
+                // Drop the targets not yet polled
+                if (remaining.decrementAndGet() == 0) {
+                    complete();
+                    return;
+                }
+                target = pending.poll();
+            }
+            if (target == null) {
+                return;
+            }
+            PollTarget next = target;
+            CompletableFuture<PollOutcome> poll;
+            try {
+                // The permit is taken by the target, so that a device served from the status cache does not spend one
+                poll = next.poll(() -> budget.acquireAsync(scheduler).thenApply(waited -> {
+                    budgetWaitMillis.addAndGet(waited);
+                    return waited;
+                }));
+            } catch (RuntimeException e) {
+                poll = CompletableFuture.failedFuture(e);
+            }
+            // Continue on the scheduler, so that polls completing synchronously do not grow the stack per device
+            poll.whenCompleteAsync((outcome, e) -> {
+                try {
+                    polled(next, outcome, e);
+                } catch (RuntimeException ex) {
+                    logger.warn("Error recording poll of device {}", next.getDeviceId(), ex);
+                }
+                laneCompleted();
+            }, scheduler).whenComplete((v, e) -> {
+                if (e != null) {
+                    // The scheduler rejected the continuation, ie while shutting down. Finish the cycle without
+                    // polling the remaining targets, so that its future still completes.
+                    logger.debug("Unable to continue poll cycle {}: {}", cycleNumber, e.getMessage());
+                    failed.incrementAndGet();
+                    aborted = true;
+                    laneCompleted();
+                }
+            });
+        }
+
+        private void polled(PollTarget target, @Nullable PollOutcome outcome, @Nullable Throwable e) {
+            if (e != null) {
+                logger.warn("Error polling device {}", target.getDeviceId(), e);
+            }
+            PollOutcome recorded = outcome == null ? PollOutcome.FAILED : outcome;
+            if (recorded == PollOutcome.FAILED) {
+                failed.incrementAndGet();
+            }
+            AdaptivePollInterval interval = getInterval(target.getDeviceId());
+            if (recorded != PollOutcome.CACHED) {
+                // Measured from the start of the cycle, as cycles are. Otherwise the time a poll takes would make a
+                // device at the lower bound miss every other cycle.
+                interval.recordPoll(started, recorded);
+            }
+            logger.trace("Device {} polled with outcome {}, next poll in {}", target.getDeviceId(), recorded,
+                    interval.getInterval());
+        }
+
+        private void laneCompleted() {
+            if (remaining.decrementAndGet() == 0) {
+                complete();
+            } else {
+                launchNext();
+            }
+        }
+
+        void complete() {
+            PollCycleResult cycleResult = new PollCycleResult(cycleNumber, started,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), budgetWaitMillis.get(), candidates,
+                    due.size(), failed.get());
+            try {
+                if (!stopped) {
+                    listener.cycleCompleted(cycleResult);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Error publishing result of poll cycle {}", cycleNumber, e);
+            } finally {
+                result.complete(cycleResult);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Cache of device status fetches for one account, keyed by device id. A successful fetch is reused for the time to
+ * live, and callers arriving while a fetch is in flight share it. Failed fetches are shared but not cached. The fetch
+ * itself merges the response into the model, the cache only keeps track of when it completed.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class DeviceStatusCache {
+    public static final int DEFAULT_TTL_SECONDS = 15;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Supplier<Instant> clock;
+    private volatile Duration ttl;
+
+    public DeviceStatusCache(Duration ttl) {
+        this(ttl, Instant::now);
+    }
+
+    DeviceStatusCache(Duration ttl, Supplier<Instant> clock) {
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    private static class Entry {
+        private final CompletableFuture<PollOutcome> result = new CompletableFuture<>();
+        // Null while in flight
+        private @Nullable Instant fetched;
+    }
+
+    /**
+     * Fetch the status of a device, unless a fetch of it is in flight or completed successfully within the time to
+     * live.
+     *
+     * @param fetch sends the request and processes the response, called only if no usable fetch exists
+     * @return outcome of the fetch sent by this or a concurrent caller, or {@link PollOutcome#CACHED} if a completed
+     *         fetch was reused
+     */
+    public CompletableFuture<PollOutcome> fetch(String deviceId, Supplier<CompletableFuture<PollOutcome>> fetch) {
+        Entry created = new Entry();
+        synchronized (this) {
+            Entry entry = entries.get(deviceId);
+            if (entry != null && entry.fetched == null) {
+                return entry.result;
+            }
+            if (entry != null && isFresh(entry)) {
+                return CompletableFuture.completedFuture(PollOutcome.CACHED);
+            }
+            entries.put(deviceId, created);
+        }
+        CompletableFuture<PollOutcome> request;
+        try {
+            request = fetch.get();
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        request.whenComplete((outcome, e) -> completed(deviceId, created, outcome, e));
+        return created.result;
+    }
+
+    private boolean isFresh(Entry entry) {
+        Instant fetched = entry.fetched;
+        return fetched != null && Duration.between(fetched, clock.get()).compareTo(ttl) < 0;
+    }
+
+    private void completed(String deviceId, Entry entry, @Nullable PollOutcome outcome, @Nullable Throwable error) {
+        synchronized (this) {
+            if (entries.get(deviceId) == entry) {
+                if (error != null || outcome == null || outcome == PollOutcome.FAILED) {
+                    entries.remove(deviceId);
+                } else {
+                    entry.fetched = clock.get();
+                }
+            }
+        }
+        if (error != null) {
+            entry.result.completeExceptionally(error);
+        } else {
+            entry.result.complete(outcome == null ? PollOutcome.FAILED : outcome);
+        }
+    }
+
+    /**
+     * Forget the last fetch of a device, ie after a command changed its state. A fetch in flight still completes for
+     * its callers, but is not reused.
+     */
+    public synchronized void invalidate(String deviceId) {
+        entries.remove(deviceId);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+}
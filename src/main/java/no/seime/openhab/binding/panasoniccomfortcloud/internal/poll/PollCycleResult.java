@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import java.time.Instant;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Summary of a completed poll cycle, including timings
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class PollCycleResult {
+    private final long cycleNumber;
+    private final Instant started;
+    private final long durationMillis;
+    private final long budgetWaitMillis;
+    private final int candidates;
+    private final int polled;
+    private final int failed;
+
+    public PollCycleResult(long cycleNumber, Instant started, long durationMillis, long budgetWaitMillis,
+            int candidates, int polled, int failed) {
+        this.cycleNumber = cycleNumber;
+        this.started = started;
+        this.durationMillis = durationMillis;
+        this.budgetWaitMillis = budgetWaitMillis;
+        this.candidates = candidates;
+        this.polled = polled;
+        this.failed = failed;
+    }
+
+    public long getCycleNumber() {
+        return cycleNumber;
+    }
+
+    public Instant getStarted() {
+        return started;
+    }
+
+    /**
+     * @return wall clock time from cycle start until the last device request completed
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return accumulated time spent waiting for the request budget
+     */
+    public long getBudgetWaitMillis() {
+        return budgetWaitMillis;
+    }
+
+    /**
+     * @return number of devices considered in this cycle
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @return number of devices that were actually requested from the server
+     */
+    public int getPolled() {
+        return polled;
+    }
+
+    public int getSkipped() {
+        return candidates - polled;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "PollCycleResult{" + "cycleNumber=" + cycleNumber + ", started=" + started + ", durationMillis="
+                + durationMillis + ", budgetWaitMillis=" + budgetWaitMillis + ", candidates=" + candidates
+                + ", polled=" + polled + ", skipped=" + getSkipped() + ", failed=" + failed + '}';
+    }
+}
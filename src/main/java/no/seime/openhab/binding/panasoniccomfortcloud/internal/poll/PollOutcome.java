@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+/**
+ * Result of polling a single {@link PollTarget}
+ *
+ * @author agent - Initial contribution
+ */
+public enum PollOutcome {
+    /**
+     * Device state was fetched and had changed since the previous poll
+     */
+    UPDATED,
+    /**
+     * Device state was fetched, but no relevant changes were found
+     */
+    UNCHANGED,
+    /**
+     * Device state was not fetched, a fetch made moments before was reused. Says nothing about how often the device
+     * changes.
+     */
+    CACHED,
+    FAILED
+}
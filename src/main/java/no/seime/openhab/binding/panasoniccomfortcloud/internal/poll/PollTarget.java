@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * A single device that can be refreshed as part of a poll cycle run by the {@link DevicePollEngine}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public interface PollTarget {
+
+    String getDeviceId();
+
+    /**
+     * @return true if this target should take part in the next poll cycle at all
+     */
+    boolean isPollable();
+
+    /**
+     * Fetch the latest state of this device from the server. Must not block; the returned future is completed when
+     * the device has been refreshed.
+     *
+     * @param permit takes a permit from the request budget, completed with the milliseconds waited. Called once
+     *            before sending the request, and not at all if the state is served without one.
+     */
+    CompletableFuture<PollOutcome> poll(Supplier<CompletableFuture<Long>> permit);
+}
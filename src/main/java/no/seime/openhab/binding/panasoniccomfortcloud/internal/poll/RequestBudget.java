@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Token bucket limiting the number of requests per minute sent to the cloud for one account. The bucket starts full,
+ * so short bursts up to the budget are allowed, after which requests are spread evenly over the minute.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class RequestBudget {
+    private final double capacity;
+    private final double nanosPerPermit;
+    private double available;
+    private long lastRefill;
+
+    public RequestBudget(int requestsPerMinute) {
+        if (requestsPerMinute < 1) {
+            throw new IllegalArgumentException("Request budget must allow at least 1 request per minute");
+        }
+        this.capacity = requestsPerMinute;
+        this.nanosPerPermit = (double) TimeUnit.MINUTES.toNanos(1) / requestsPerMinute;
+        this.available = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Reserve one permit.
+     *
+     * @return nanoseconds the caller must wait before the reserved permit may be used, 0 if available immediately
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefill) / nanosPerPermit);
+        lastRefill = now;
+        available -= 1;
+        return available >= 0 ? 0 : (long) (-available * nanosPerPermit);
+    }
+
+    /**
+     * Reserve one permit and block until it may be used.
+     *
+     * @return milliseconds spent waiting
+     */
+    public long acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    }
+
+    /**
+     * Reserve one permit without blocking.
+     *
+     * @return future completed, with the milliseconds waited, once the reserved permit may be used
+     */
+    public CompletableFuture<Long> acquireAsync(ScheduledExecutorService scheduler) {
+        long waitNanos = reserve();
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(waitMillis);
+        }
+        CompletableFuture<Long> permit = new CompletableFuture<>();
+        try {
+            scheduler.schedule(() -> permit.complete(waitMillis), waitNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            permit.completeExceptionally(e);
+        }
+        return permit;
+    }
+}
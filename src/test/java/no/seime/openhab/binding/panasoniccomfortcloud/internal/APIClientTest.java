@@ -5,6 +5,10 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,10 +16,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.openhab.core.storage.Storage;
 import org.openhab.core.test.storage.VolatileStorage;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
 
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.config.AccountConfiguration;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsRequest;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsResponse;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 @ExtendWith(MockitoExtension.class)
 public class APIClientTest {
@@ -57,6 +69,179 @@ public class APIClientTest {
         assertEquals("2.1.0", appVersion);
     }
 
+    @Test
+    public void testLegacyTokenKeysAreMigratedToSingleRecord() {
+        storage.put("accessToken", "access");
+        storage.put("refreshToken", "refresh");
+        storage.put("clientId", "client");
+        storage.put("tokenExpiry", "1700000000");
+        storage.put("scope", "openid");
+
+        new ApiBridge(storage);
+
+        assertNull(storage.get("accessToken"));
+        assertNull(storage.get("refreshToken"));
+        assertNull(storage.get("clientId"));
+        assertNull(storage.get("tokenExpiry"));
+        assertNull(storage.get("scope"));
+        String record = (String) storage.get("token");
+        assertNotNull(record);
+        JsonObject token = JsonParser.parseString(record).getAsJsonObject();
+        assertEquals("access", token.get("accessToken").getAsString());
+        assertEquals("refresh", token.get("refreshToken").getAsString());
+        assertEquals(1700000000L, token.get("tokenExpiry").getAsLong());
+    }
+
+    @Test
+    public void testUnreadableLegacyTokenIsDiscarded() {
+        storage.put("accessToken", "access");
+        storage.put("refreshToken", "refresh");
+        storage.put("clientId", "client");
+        storage.put("tokenExpiry", "not a number");
+        storage.put("scope", "openid");
+
+        new ApiBridge(storage);
+
+        assertNull(storage.get("accessToken"));
+        assertNull(storage.get("tokenExpiry"));
+        assertNull(storage.get("token"));
+    }
+
+    @Test
+    public void testConfiguredEndpointsAndClientFactory() throws Exception {
+        ComfortCloudStub.Scenario scenario = new ComfortCloudStub.Scenario();
+        scenario.groups = 2;
+        scenario.devicesPerGroup = 3;
+        scenario.maxLatencyMillis = 0;
+        try (ComfortCloudStub stub = new ComfortCloudStub(scenario)) {
+            stub.start();
+            List<String> requestedPaths = new CopyOnWriteArrayList<>();
+            ApiBridge apiBridge = new ApiBridge(storage, null,
+                    profile -> new OkHttpClient.Builder().addInterceptor(chain -> {
+                        requestedPaths.add(chain.request().url().encodedPath());
+                        return chain.proceed(chain.request());
+                    }));
+
+            AccountConfiguration config = new AccountConfiguration();
+            config.username = "user@example.com";
+            config.password = "password";
+            config.appVersion = "1.20.0";
+            config.accBaseUrl = stub.getBaseUrl() + "/";
+            config.authBaseUrl = stub.getBaseUrl();
+            apiBridge.init(config);
+
+            GetGroupsResponse response = apiBridge.sendRequest(new GetGroupsRequest(),
+                    WireCodec.GET_GROUPS_RESPONSE);
+            assertEquals(2, response.groupList.length);
+            assertTrue(requestedPaths.contains("/oauth/token"));
+            assertEquals("/device/group", requestedPaths.get(requestedPaths.size() - 1));
+        }
+    }
+
+    @Test
+    public void testGatewayErrorReportsHttpStatus() throws Exception {
+        ComfortCloudStub.Scenario scenario = new ComfortCloudStub.Scenario();
+        scenario.maxLatencyMillis = 0;
+        try (ComfortCloudStub stub = new ComfortCloudStub(scenario)) {
+            stub.start();
+            ApiBridge apiBridge = new ApiBridge(storage, null,
+                    profile -> new OkHttpClient.Builder().addInterceptor(chain -> {
+                        if (!chain.request().url().encodedPath().equals("/device/group")) {
+                            return chain.proceed(chain.request());
+                        }
+                        return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(502)
+                                .message("Bad Gateway").body(ResponseBody.create(MediaType.parse("text/html"),
+                                        "<html><body>Bad Gateway</body></html>"))
+                                .build();
+                    }));
+            AccountConfiguration config = new AccountConfiguration();
+            config.username = "user@example.com";
+            config.password = "password";
+            config.appVersion = "1.20.0";
+            config.accBaseUrl = stub.getBaseUrl();
+            config.authBaseUrl = stub.getBaseUrl();
+            apiBridge.init(config);
+
+            CommunicationException e = assertThrows(CommunicationException.class,
+                    () -> apiBridge.sendRequest(new GetGroupsRequest(), WireCodec.GET_GROUPS_RESPONSE));
+            assertTrue(e.getMessage().contains("code 502"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoginIsRetriedAfterFailedLogin() throws Exception {
+        ComfortCloudStub.Scenario scenario = new ComfortCloudStub.Scenario();
+        scenario.groups = 1;
+        scenario.devicesPerGroup = 1;
+        scenario.maxLatencyMillis = 0;
+        try (ComfortCloudStub stub = new ComfortCloudStub(scenario)) {
+            stub.start();
+            ApiBridge apiBridge = new ApiBridge(storage);
+            AccountConfiguration config = new AccountConfiguration();
+            config.username = "user@example.com";
+            config.password = "password";
+            config.appVersion = "1.20.0";
+            config.accBaseUrl = stub.getBaseUrl();
+            config.authBaseUrl = stub.getBaseUrl();
+            apiBridge.init(config);
+
+            stub.setLoginFailing(true);
+            assertThrows(CommunicationException.class,
+                    () -> apiBridge.sendRequest(new GetGroupsRequest(), WireCodec.GET_GROUPS_RESPONSE));
+            assertEquals(0L, stub.drainRequestCounts().getOrDefault(ComfortCloudStub.REQUESTS_GROUPS, 0L).longValue());
+
+            // The failed login must not be handed to later callers
+            stub.setLoginFailing(false);
+            GetGroupsResponse response = apiBridge.sendRequest(new GetGroupsRequest(),
+                    WireCodec.GET_GROUPS_RESPONSE);
+            assertEquals(1, response.groupList.length);
+            Map<String, Long> requests = stub.drainRequestCounts();
+            assertTrue(requests.getOrDefault(ComfortCloudStub.REQUESTS_AUTH, 0L) > 0);
+            assertEquals(1L, requests.get(ComfortCloudStub.REQUESTS_GROUPS).longValue());
+        }
+    }
+
+    @Test
+    public void testFailedRefreshIsNotRepeatedByEveryRequest() throws Exception {
+        ComfortCloudStub.Scenario scenario = new ComfortCloudStub.Scenario();
+        scenario.groups = 1;
+        scenario.devicesPerGroup = 1;
+        scenario.maxLatencyMillis = 0;
+        try (ComfortCloudStub stub = new ComfortCloudStub(scenario)) {
+            stub.start();
+            // Valid for another 30 minutes, so due for refresh
+            long expiry = Instant.now().getEpochSecond() + 30 * 60;
+            storage.put("token", "{\"accessToken\":\"access\",\"refreshToken\":\"refresh\","
+                    + "\"clientId\":\"client\",\"tokenExpiry\":" + expiry + ",\"scope\":\"openid\"}");
+            ApiBridge apiBridge = new ApiBridge(storage);
+            AccountConfiguration config = new AccountConfiguration();
+            config.username = "user@example.com";
+            config.password = "password";
+            config.appVersion = "1.20.0";
+            config.accBaseUrl = stub.getBaseUrl();
+            config.authBaseUrl = stub.getBaseUrl();
+            apiBridge.init(config);
+
+            stub.setLoginFailing(true);
+            apiBridge.sendRequest(new GetGroupsRequest(), WireCodec.GET_GROUPS_RESPONSE);
+            assertTrue(stub.drainRequestCounts().getOrDefault(ComfortCloudStub.REQUESTS_AUTH, 0L) > 0);
+
+            // The current token is served until the scheduled renewal retries
+            apiBridge.sendRequest(new GetGroupsRequest(), WireCodec.GET_GROUPS_RESPONSE);
+            apiBridge.sendRequest(new GetGroupsRequest(), WireCodec.GET_GROUPS_RESPONSE);
+            Map<String, Long> requests = stub.drainRequestCounts();
+            assertEquals(0L, requests.getOrDefault(ComfortCloudStub.REQUESTS_AUTH, 0L).longValue());
+            assertEquals(2L, requests.get(ComfortCloudStub.REQUESTS_GROUPS).longValue());
+        }
+    }
+
+    @Test
+    public void testInvalidEndpointIsRejected() {
+        AccountConfiguration config = new AccountConfiguration();
+        config.accBaseUrl = "accsmart.panasonic.com";
+        assertThrows(ConfigurationException.class, () -> new ApiBridge(storage).init(config));
+    }
+
     @Test
     public void testGetAppVersionIntegration() {
         ApiBridge apiBridge = new ApiBridge(storage);
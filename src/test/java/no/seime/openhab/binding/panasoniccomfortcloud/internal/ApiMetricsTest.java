@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.PollCycleResult;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class ApiMetricsTest {
+
+    @Test
+    public void testRecordsCallsPerEndpointAndStatus() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ApiMetrics metrics = new ApiMetrics(registry, "account");
+
+        WireMockServer server = new WireMockServer(WireMockConfiguration.options().dynamicPort());
+        server.start();
+        try {
+            server.stubFor(post(urlPathEqualTo("/device/group")).willReturn(aResponse().withStatus(200)
+                    .withHeader("Content-Type", "application/json").withHeader("Content-Length", "16")
+                    .withBody("{\"groupList\":[]}")));
+            OkHttpClient client = new OkHttpClient.Builder().addInterceptor(metrics).build();
+
+            for (int i = 0; i < 2; i++) {
+                Request request = ApiMetrics.endpoint(new Request.Builder(), "GetGroupsRequest")
+                        .url(server.baseUrl() + "/device/group")
+                        .post(RequestBody.create("{}", MediaType.get("application/json"))).build();
+                try (Response response = client.newCall(request).execute()) {
+                    assertEquals(200, response.code());
+                }
+            }
+            Request untagged = new Request.Builder().url(server.baseUrl() + "/unknown")
+                    .post(RequestBody.create("{}", MediaType.get("application/json"))).build();
+            try (Response response = client.newCall(untagged).execute()) {
+                assertEquals(404, response.code());
+            }
+        } finally {
+            server.stop();
+        }
+
+        assertEquals(2, registry.get("panasoniccomfortcloud.api.requests").tag("account", "account")
+                .tag("endpoint", "GetGroupsRequest").tag("status", "200").timer().count());
+        assertEquals(1, registry.get("panasoniccomfortcloud.api.requests").tag("endpoint", "other")
+                .tag("status", "404").timer().count());
+        assertEquals(4, registry.get("panasoniccomfortcloud.api.bytes").tag("endpoint", "GetGroupsRequest")
+                .tag("direction", "out").summary().totalAmount());
+        assertEquals(32, registry.get("panasoniccomfortcloud.api.bytes").tag("endpoint", "GetGroupsRequest")
+                .tag("direction", "in").summary().totalAmount());
+    }
+
+    @Test
+    public void testCountsErrorsAuthenticationAndPollCycles() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ApiMetrics metrics = new ApiMetrics(registry, "account");
+
+        metrics.apiError("GetDeviceRequest", 4106);
+        metrics.apiError("GetDeviceRequest", 4106);
+        metrics.authentication(ApiMetrics.AUTH_REFRESH, true);
+        metrics.authentication(ApiMetrics.AUTH_LOGIN, false);
+        metrics.pollCycle(new PollCycleResult(1, Instant.now(), 250, 0, 3, 2, 1));
+
+        assertEquals(2, registry.get("panasoniccomfortcloud.api.errors").tag("code", "4106").counter().count());
+        assertEquals(1, registry.get("panasoniccomfortcloud.auth").tag("operation", "refresh")
+                .tag("outcome", "success").counter().count());
+        assertEquals(1, registry.get("panasoniccomfortcloud.auth").tag("operation", "login")
+                .tag("outcome", "failure").counter().count());
+        assertEquals(250, registry.get("panasoniccomfortcloud.poll.cycle").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2, registry.get("panasoniccomfortcloud.poll.devices").tag("outcome", "polled").counter().count());
+        assertEquals(1, registry.get("panasoniccomfortcloud.poll.devices").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    public void testDeviceStalenessGauge() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ApiMetrics metrics = new ApiMetrics(registry, "account");
+        AtomicReference<Instant> lastUpdated = new AtomicReference<>();
+
+        Meter gauge = metrics.deviceStaleness("device", lastUpdated::get);
+        assertTrue(Double.isNaN(registry.get("panasoniccomfortcloud.device.staleness").gauge().value()));
+
+        lastUpdated.set(Instant.now().minusSeconds(120));
+        double staleness = registry.get("panasoniccomfortcloud.device.staleness").tag("device", "device").gauge()
+                .value();
+        assertTrue(staleness >= 120 && staleness < 130, "Staleness was " + staleness);
+
+        metrics.remove(gauge);
+        assertNull(registry.find("panasoniccomfortcloud.device.staleness").gauge());
+    }
+}
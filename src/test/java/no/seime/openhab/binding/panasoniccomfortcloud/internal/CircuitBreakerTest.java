@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    // Jitter at its maximum, so backoffs equal their nominal length
+    private final CircuitBreaker breaker = new CircuitBreaker("GetGroupsRequest", 3, Duration.ofSeconds(30),
+            Duration.ofSeconds(100), clock::get, () -> 0.999999999);
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    private void failTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+        }
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        failTimes(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+
+        failTimes(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        failTimes(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(30, breaker.getRemainingBackoff().toSeconds(), 1);
+    }
+
+    @Test
+    public void testHalfOpenLetsSingleProbeThrough() {
+        failTimes(3);
+        advance(Duration.ofSeconds(29));
+        assertFalse(breaker.tryAcquire());
+
+        advance(Duration.ofSeconds(1));
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        assertTrue(breaker.recordSuccess());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testLostProbeIsReplacedAfterTimeout() {
+        failTimes(3);
+        advance(Duration.ofSeconds(30));
+        // The probe is let through, but its outcome is never recorded
+        assertTrue(breaker.tryAcquire());
+
+        advance(CircuitBreaker.PROBE_TIMEOUT.minusSeconds(1));
+        assertFalse(breaker.tryAcquire());
+        advance(Duration.ofSeconds(1));
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        assertTrue(breaker.recordSuccess());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbeDoublesBackoffUpToMaximum() {
+        failTimes(3);
+        advance(Duration.ofSeconds(30));
+        failTimes(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(60, breaker.getRemainingBackoff().toSeconds(), 1);
+
+        advance(Duration.ofSeconds(60));
+        failTimes(1);
+        assertEquals(100, breaker.getRemainingBackoff().toSeconds(), 1);
+
+        advance(Duration.ofSeconds(100));
+        failTimes(1);
+        assertEquals(100, breaker.getRemainingBackoff().toSeconds(), 1);
+    }
+
+    @Test
+    public void testBackoffIsJittered() {
+        CircuitBreaker minimal = new CircuitBreaker("GetGroupsRequest", 1, Duration.ofSeconds(30),
+                Duration.ofSeconds(100), clock::get, () -> 0);
+        assertTrue(minimal.tryAcquire());
+        assertTrue(minimal.recordFailure());
+        assertEquals(15, minimal.getRemainingBackoff().toSeconds());
+    }
+}
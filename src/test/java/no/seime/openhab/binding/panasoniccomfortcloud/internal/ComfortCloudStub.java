@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Local stand-in for both the Panasonic ID login service and the Comfort Cloud API, serving a synthetic account.
+ * <p>
+ * The login flow is answered with fixed redirects, cookies and tokens. The group listing and device status responses
+ * are generated from the test fixtures, with a configurable share of devices changing state between cycles, response
+ * latency, server errors and 4106 (app version outdated) errors.
+ *
+ * @author agent - Initial contribution
+ */
+public class ComfortCloudStub implements AutoCloseable {
+    public static final String REQUESTS_AUTH = "auth";
+    public static final String REQUESTS_GROUPS = "groups";
+    public static final String REQUESTS_DEVICE_STATUS = "deviceStatus";
+    public static final String REQUESTS_FAILED = "failed";
+
+    private static final String REDIRECT_URI = "panasonic-iot-cfc://authglb.digital.panasonic.com/android/com.panasonic.ACCsmart/callback";
+    private static final String DEVICE_STATUS_PATH = "/deviceStatus/";
+    private static final String STATE = "stub-state";
+    private static final int ERROR_CODE_UPDATE_VERSION = 4106;
+
+    /**
+     * Size and behaviour of the simulated account
+     */
+    public static class Scenario {
+        public int groups = 200;
+        public int devicesPerGroup = 10;
+        public int minLatencyMillis = 20;
+        public int maxLatencyMillis = 80;
+        // Share of API requests answered with HTTP 500
+        public double errorRate = 0.0;
+        // Share of API requests answered with error code 4106
+        public double versionErrorRate = 0.0;
+        // Share of devices changing state between cycles
+        public double changeRate = 0.2;
+        public long seed = 42;
+
+        /**
+         * Read the scenario from <code>panasonic.loadtest.*</code> system properties, using defaults for any not set
+         */
+        public static Scenario fromSystemProperties() {
+            Scenario scenario = new Scenario();
+            scenario.groups = Integer.getInteger("panasonic.loadtest.groups", scenario.groups);
+            scenario.devicesPerGroup = Integer.getInteger("panasonic.loadtest.devicesPerGroup",
+                    scenario.devicesPerGroup);
+            scenario.minLatencyMillis = Integer.getInteger("panasonic.loadtest.minLatencyMillis",
+                    scenario.minLatencyMillis);
+            scenario.maxLatencyMillis = Integer.getInteger("panasonic.loadtest.maxLatencyMillis",
+                    scenario.maxLatencyMillis);
+            scenario.errorRate = doubleProperty("panasonic.loadtest.errorRate", scenario.errorRate);
+            scenario.versionErrorRate = doubleProperty("panasonic.loadtest.versionErrorRate",
+                    scenario.versionErrorRate);
+            scenario.changeRate = doubleProperty("panasonic.loadtest.changeRate", scenario.changeRate);
+            scenario.seed = Long.getLong("panasonic.loadtest.seed", scenario.seed);
+            return scenario;
+        }
+
+        private static double doubleProperty(String name, double defaultValue) {
+            String value = System.getProperty(name);
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+
+        @Override
+        public String toString() {
+            return "Scenario{" + "groups=" + groups + ", devicesPerGroup=" + devicesPerGroup + ", latency="
+                    + minLatencyMillis + "-" + maxLatencyMillis + "ms" + ", errorRate=" + errorRate
+                    + ", versionErrorRate=" + versionErrorRate + ", changeRate=" + changeRate + ", seed=" + seed
+                    + '}';
+        }
+    }
+
+    private final Scenario scenario;
+    private final WireMockServer server;
+    private final Random random;
+    private final List<String> deviceIds = new ArrayList<>();
+    private final Map<String, Integer> deviceIndex = new ConcurrentHashMap<>();
+    private final int[] insideTemperatures;
+    private final JsonObject deviceTemplate;
+    private final String groupsBody;
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private volatile boolean loginFailing;
+
+    public ComfortCloudStub(Scenario scenario) throws IOException {
+        this.scenario = scenario;
+        this.random = new Random(scenario.seed);
+        this.deviceTemplate = readFixture("/get_device_response_on.json");
+        this.groupsBody = createGroups(readFixture("/get_groups_response.json"));
+        this.insideTemperatures = new int[deviceIds.size()];
+        for (int i = 0; i < insideTemperatures.length; i++) {
+            insideTemperatures[i] = 18 + random.nextInt(6);
+        }
+
+        server = new WireMockServer(WireMockConfiguration.options().dynamicPort().disableRequestJournal()
+                .containerThreads(Math.max(32, Runtime.getRuntime().availableProcessors() * 4))
+                .extensions(new Responder()));
+    }
+
+    public void start() {
+        server.start();
+
+        // Login service
+        server.stubFor(get(urlPathMatching("/+authorize")).willReturn(
+                aResponse().withStatus(302).withHeader("Location", "u/login?state=" + STATE)));
+        server.stubFor(get(urlPathEqualTo("/u/login"))
+                .willReturn(aResponse().withStatus(200).withHeader("Set-Cookie", "_csrf=stub-csrf; Path=/")));
+        server.stubFor(post(urlPathEqualTo("/usernamepassword/login")).willReturn(aResponse().withStatus(200)
+                .withHeader("Content-Type", "text/html").withBody("<html><body><form method=\"post\">"
+                        + "<input type=\"hidden\" name=\"wa\" value=\"wsignin1.0\"/>"
+                        + "<input type=\"hidden\" name=\"wresult\" value=\"stub-result\"/>"
+                        + "<input type=\"hidden\" name=\"wctx\" value=\"{}\"/></form></body></html>")));
+        server.stubFor(post(urlPathEqualTo("/login/callback")).willReturn(
+                aResponse().withStatus(302).withHeader("Location", "authorize/resume?state=" + STATE)));
+        server.stubFor(get(urlPathEqualTo("/authorize/resume")).willReturn(aResponse().withStatus(302)
+                .withHeader("Location", REDIRECT_URI + "?code=stub-code&state=" + STATE)));
+        server.stubFor(post(urlPathEqualTo("/oauth/token")).willReturn(json(
+                "{\"access_token\":\"stub-access-token\",\"refresh_token\":\"stub-refresh-token\",\"expires_in\":86400,"
+                        + "\"scope\":\"openid offline_access comfortcloud.control a2w.control\"}")));
+
+        // Comfort Cloud API
+        server.stubFor(post(urlPathEqualTo("/auth/v2/login")).willReturn(json("{\"clientId\":\"stub-client-id\"}")));
+        server.stubFor(get(urlPathEqualTo("/device/group")).willReturn(withLatency(json(groupsBody))));
+        server.stubFor(get(urlPathMatching(DEVICE_STATUS_PATH + ".+")).willReturn(withLatency(json("{}"))));
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+
+    /**
+     * @return base URL serving both the login service and the API
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public List<String> getDeviceIds() {
+        return Collections.unmodifiableList(deviceIds);
+    }
+
+    /**
+     * Change the state of a share of the devices, as given by {@link Scenario#changeRate}
+     */
+    public synchronized void advance() {
+        for (int i = 0; i < insideTemperatures.length; i++) {
+            if (random.nextDouble() < scenario.changeRate) {
+                insideTemperatures[i] = 18 + (insideTemperatures[i] - 17) % 6;
+            }
+        }
+    }
+
+    /**
+     * Make the token endpoint of the login service fail, or recover
+     */
+    public void setLoginFailing(boolean loginFailing) {
+        this.loginFailing = loginFailing;
+    }
+
+    /**
+     * @return number of requests received per category since the last call
+     */
+    public Map<String, Long> drainRequestCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        requestCounts.forEach((category, count) -> counts.put(category, count.getAndSet(0)));
+        return counts;
+    }
+
+    private ResponseDefinitionBuilder withLatency(ResponseDefinitionBuilder response) {
+        if (scenario.maxLatencyMillis > 0) {
+            response.withUniformRandomDelay(scenario.minLatencyMillis, scenario.maxLatencyMillis);
+        }
+        return response;
+    }
+
+    private static ResponseDefinitionBuilder json(String body) {
+        return aResponse().withStatus(200).withHeader("Content-Type", "application/json;charset=utf-8")
+                .withBody(body);
+    }
+
+    private String createGroups(JsonObject groupsTemplate) {
+        JsonObject deviceInGroupTemplate = groupsTemplate.getAsJsonArray("groupList").get(0).getAsJsonObject()
+                .getAsJsonArray("deviceList").get(0).getAsJsonObject();
+
+        JsonArray groupList = new JsonArray();
+        for (int g = 0; g < scenario.groups; g++) {
+            JsonObject group = new JsonObject();
+            group.addProperty("groupId", 100000 + g);
+            group.addProperty("groupName", "Group " + g);
+            group.add("pairingList", new JsonArray());
+            JsonArray deviceList = new JsonArray();
+            for (int d = 0; d < scenario.devicesPerGroup; d++) {
+                String deviceId = String.format("CS-LOADTEST-%06d", deviceIds.size());
+                deviceIndex.put(deviceId, deviceIds.size());
+                deviceIds.add(deviceId);
+
+                JsonObject device = deviceInGroupTemplate.deepCopy();
+                device.addProperty("deviceGuid", deviceId);
+                device.addProperty("deviceName", "Device " + g + "-" + d);
+                deviceList.add(device);
+            }
+            group.add("deviceList", deviceList);
+            groupList.add(group);
+        }
+
+        JsonObject groups = groupsTemplate.deepCopy();
+        groups.addProperty("groupCount", scenario.groups);
+        groups.add("groupList", groupList);
+        return groups.toString();
+    }
+
+    private String deviceStatus(int index) {
+        JsonObject device = deviceTemplate.deepCopy();
+        device.addProperty("timestamp", System.currentTimeMillis());
+        synchronized (this) {
+            device.getAsJsonObject("parameters").addProperty("insideTemperature", insideTemperatures[index]);
+        }
+        return device.toString();
+    }
+
+    private static JsonObject readFixture(String name) throws IOException {
+        try (InputStream is = ComfortCloudStub.class.getResourceAsStream(name)) {
+            return JsonParser.parseReader(new InputStreamReader(is, StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+    }
+
+    private void count(String category) {
+        requestCounts.computeIfAbsent(category, c -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Generates device status bodies, injects errors and counts requests
+     */
+    private class Responder extends ResponseDefinitionTransformer {
+
+        @Override
+        public String getName() {
+            return "comfort-cloud";
+        }
+
+        @Override
+        public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition, FileSource files,
+                Parameters parameters) {
+            String path = URI.create(request.getUrl()).getRawPath();
+            if (!path.startsWith("/device")) {
+                count(REQUESTS_AUTH);
+                if (loginFailing && path.equals("/oauth/token")) {
+                    return error(responseDefinition, 500, 5005, "Internal server error");
+                }
+                return responseDefinition;
+            }
+            boolean deviceStatus = path.startsWith(DEVICE_STATUS_PATH);
+            count(deviceStatus ? REQUESTS_DEVICE_STATUS : REQUESTS_GROUPS);
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < scenario.versionErrorRate) {
+                return error(responseDefinition, 417, ERROR_CODE_UPDATE_VERSION, "Version is old");
+            } else if (roll < scenario.versionErrorRate + scenario.errorRate) {
+                return error(responseDefinition, 500, 5005, "Internal server error");
+            }
+
+            if (deviceStatus) {
+                String deviceId = URLDecoder.decode(path.substring(DEVICE_STATUS_PATH.length()),
+                        StandardCharsets.UTF_8);
+                Integer index = deviceIndex.get(deviceId);
+                if (index == null) {
+                    return error(responseDefinition, 403, 4102, "Device not found");
+                }
+                return ResponseDefinitionBuilder.like(responseDefinition).withBody(deviceStatus(index)).build();
+            }
+            return responseDefinition;
+        }
+
+        private ResponseDefinition error(ResponseDefinition responseDefinition, int status, int code,
+                String message) {
+            count(REQUESTS_FAILED);
+            return ResponseDefinitionBuilder.like(responseDefinition).withStatus(status)
+                    .withBody("{\"code\":" + code + ",\"message\":\"" + message + "\"}").build();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class RequestSignerTest {
+
+    @Test
+    public void testMatchesReferenceImplementation() throws NoSuchAlgorithmException {
+        RequestSigner signer = new RequestSigner();
+        Instant timestamp = Instant.ofEpochSecond(1700000000, 123456789);
+
+        assertEquals(reference(timestamp, "token-a"), signer.sign(timestamp, "token-a"));
+        assertEquals(reference(timestamp, "token-b"), signer.sign(timestamp, "token-b"));
+        assertEquals(reference(timestamp.plusSeconds(1), "token-b"), signer.sign(timestamp.plusSeconds(1), "token-b"));
+        assertEquals(reference(Instant.EPOCH, "token-b"), signer.sign(Instant.EPOCH, "token-b"));
+    }
+
+    @Test
+    public void testSignatureIsReusedWithinSameSecond() {
+        RequestSigner signer = new RequestSigner();
+        Instant timestamp = Instant.ofEpochSecond(1700000000);
+
+        String first = signer.sign(timestamp, "token");
+        assertSame(first, signer.sign(timestamp.plusMillis(999), "token"));
+    }
+
+    @Test
+    public void testConcurrentSigning() throws Exception {
+        RequestSigner signer = new RequestSigner();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                Instant timestamp = Instant.ofEpochSecond(1700000000L + i % 5);
+                String token = "token-" + i % 3;
+                String expected = reference(timestamp, token);
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        if (!expected.equals(signer.sign(timestamp, token))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertEquals(true, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String reference(Instant timestamp, String accessToken) throws NoSuchAlgorithmException {
+        String input = "Comfort Cloud" + "521325fb2dd486bf4831b47644317fca" + timestamp.getEpochSecond() * 1000
+                + "Bearer " + accessToken;
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.substring(0, 9) + "cfc" + hex.substring(9);
+    }
+}
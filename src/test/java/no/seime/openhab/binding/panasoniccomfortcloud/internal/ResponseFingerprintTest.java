@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class ResponseFingerprintTest {
+
+    @Test
+    public void testTimestampIsExcluded() throws IOException {
+        String body = new String(getClass().getResourceAsStream("/get_device_response_on.json").readAllBytes(),
+                StandardCharsets.UTF_8);
+
+        ResponseFingerprint original = ResponseFingerprint.of(body.getBytes(StandardCharsets.UTF_8));
+        ResponseFingerprint later = ResponseFingerprint
+                .of(body.replace("1643216480613", "1643216999999").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(original.getValue(), later.getValue());
+        assertEquals(1643216480613L, original.getTimestamp());
+        assertEquals(1643216999999L, later.getTimestamp());
+    }
+
+    @Test
+    public void testParameterChangeIsDetected() throws IOException {
+        String body = new String(getClass().getResourceAsStream("/get_device_response_on.json").readAllBytes(),
+                StandardCharsets.UTF_8);
+
+        ResponseFingerprint original = ResponseFingerprint.of(body.getBytes(StandardCharsets.UTF_8));
+        ResponseFingerprint changed = ResponseFingerprint.of(body
+                .replace("\"insideTemperature\": 20", "\"insideTemperature\": 21").getBytes(StandardCharsets.UTF_8));
+
+        assertNotEquals(original.getValue(), changed.getValue());
+    }
+
+    @Test
+    public void testStringValuesNamedLikeVolatileFields() {
+        ResponseFingerprint a = ResponseFingerprint
+                .of("{\"deviceName\":\"timestamp\",\"operate\":1}".getBytes(StandardCharsets.UTF_8));
+        ResponseFingerprint b = ResponseFingerprint
+                .of("{\"deviceName\":\"timestamp\",\"operate\":0}".getBytes(StandardCharsets.UTF_8));
+
+        assertNotEquals(a.getValue(), b.getValue());
+        assertNull(a.getTimestamp());
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.core.test.storage.VolatileStorage;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.config.AccountConfiguration;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsRequest;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsResponse;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class SharedTransportTest {
+
+    @Test
+    public void testEqualProfilesShareConnectionPoolAndDispatcher() {
+        SharedTransport transport = new SharedTransport();
+        OkHttpClient first = transport.newBuilder(TransportProfile.of(new AccountConfiguration())).build();
+        OkHttpClient second = transport.newBuilder(TransportProfile.DEFAULT).build();
+
+        assertSame(first.connectionPool(), second.connectionPool());
+        assertSame(first.dispatcher(), second.dispatcher());
+        assertEquals(TransportProfile.DEFAULT_MAX_REQUESTS_PER_HOST, first.dispatcher().getMaxRequestsPerHost());
+        assertEquals(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1), first.protocols());
+        transport.shutdown();
+    }
+
+    @Test
+    public void testDifferentProfilesAreIsolated() {
+        SharedTransport transport = new SharedTransport();
+        AccountConfiguration config = new AccountConfiguration();
+        config.maxRequestsPerHost = 2;
+        config.http2 = false;
+        OkHttpClient tuned = transport.newBuilder(TransportProfile.of(config)).build();
+        OkHttpClient standard = transport.newBuilder(TransportProfile.DEFAULT).build();
+
+        assertNotSame(tuned.connectionPool(), standard.connectionPool());
+        assertNotSame(tuned.dispatcher(), standard.dispatcher());
+        assertEquals(2, tuned.dispatcher().getMaxRequestsPerHost());
+        assertEquals(List.of(Protocol.HTTP_1_1), tuned.protocols());
+        transport.shutdown();
+    }
+
+    @Test
+    public void testUnsharedClientsHaveTheirOwnPool() {
+        OkHttpClient first = OkHttpClientFactory.UNSHARED.newBuilder(TransportProfile.DEFAULT).build();
+        OkHttpClient second = OkHttpClientFactory.UNSHARED.newBuilder(TransportProfile.DEFAULT).build();
+
+        assertNotSame(first.connectionPool(), second.connectionPool());
+        assertNotSame(first.dispatcher(), second.dispatcher());
+    }
+
+    @Test
+    public void testLoginFailsOnceTransportIsShutDown() throws Exception {
+        SharedTransport transport = new SharedTransport();
+        ApiBridge apiBridge = new ApiBridge(new VolatileStorage<>(), null, transport);
+        AccountConfiguration config = new AccountConfiguration();
+        config.username = "user@example.com";
+        config.password = "password";
+        config.appVersion = "1.20.0";
+        apiBridge.init(config);
+        transport.shutdown();
+
+        CompletableFuture<GetGroupsResponse> response = apiBridge.sendRequestAsync(new GetGroupsRequest(),
+                WireCodec.GET_GROUPS_RESPONSE);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof CommunicationException, e.getCause().toString());
+    }
+}
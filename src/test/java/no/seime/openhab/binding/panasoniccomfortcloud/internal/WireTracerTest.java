@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class WireTracerTest {
+
+    @Test
+    public void testRedactsJsonAndFormFields() {
+        String json = WireTracer.redact("{\"access_token\":\"secret-a\", \"refresh_token\" : \"secret-r\",\"code\":0,"
+                + "\"scope\":\"openid\"}");
+        assertFalse(json.contains("secret"));
+        assertTrue(json.contains("\"code\":0"));
+        assertTrue(json.contains("\"scope\":\"openid\""));
+
+        String form = WireTracer.redact("grant_type=refresh_token&refresh_token=secret-r&client_id=app");
+        assertEquals("grant_type=refresh_token&refresh_token=" + WireTracer.REDACTED + "&client_id=app", form);
+
+        String location = WireTracer.redact("panasonic-iot-cfc://callback?code=secret-c&state=secret-s");
+        assertFalse(location.contains("secret"));
+        assertTrue(location.startsWith("panasonic-iot-cfc://callback?code="));
+    }
+
+    @Test
+    public void testBodyTracingLeavesResponseIntact() throws Exception {
+        StringBuilder body = new StringBuilder("{\"access_token\":\"secret\",\"padding\":\"");
+        for (int i = 0; i < WireTracer.MAX_BODY_BYTES * 2; i++) {
+            body.append('x');
+        }
+        body.append("\"}");
+
+        WireMockServer server = new WireMockServer(WireMockConfiguration.options().dynamicPort());
+        server.start();
+        try {
+            server.stubFor(post(urlPathEqualTo("/oauth/token")).willReturn(
+                    aResponse().withHeader("Content-Type", "application/json").withBody(body.toString())));
+            WireTracer tracer = new WireTracer(WireTracer.Level.BODY);
+            OkHttpClient client = new OkHttpClient.Builder().addInterceptor(tracer)
+                    .eventListenerFactory(tracer::eventListener).build();
+
+            Request request = new Request.Builder().url(server.baseUrl() + "/oauth/token")
+                    .post(new FormBody.Builder().add("password", "secret").build()).build();
+            try (Response response = client.newCall(request).execute()) {
+                assertEquals(200, response.code());
+                assertEquals(body.toString(), response.body().string());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
+
+/**
+ * Verifies that the hand-written adapters map JSON exactly like GSON's reflective adapters
+ *
+ * @author agent - Initial contribution
+ */
+public class DtoTypeAdaptersTest {
+
+    private final Gson reflective = new Gson();
+
+    @Test
+    public void testGroupsResponseMatchesReflectiveMapping() throws IOException {
+        for (String resource : new String[] { "/get_groups_response.json", "/get_groups_response_nanoe.json",
+                "/get_groups_response_nanoesupport_quiet.json" }) {
+            assertSameMapping(read(resource), GetGroupsResponse.class);
+        }
+    }
+
+    @Test
+    public void testDeviceResponseMatchesReflectiveMapping() throws IOException {
+        for (String resource : new String[] { "/get_device_response_on.json", "/get_device_response_off.json",
+                "/get_device_response_1306223.json", "/get_device_response_150923.json",
+                "/get_device_response_jens.json", "/get_device_response_lr.json", "/get_device_response_mrice.json",
+                "/get_device_response_nanoe.json", "/get_device_response_wifi_dongle_off.json",
+                "/device_status_response_autstserve.json" }) {
+            assertSameMapping(read(resource), DeviceDTO.class);
+        }
+    }
+
+    @Test
+    public void testSetDevicePropertiesResponse() {
+        assertSameMapping("{\"code\":0,\"statusText\":1,\"error\":{\"a\":1},\"unknown\":[1,2]}",
+                SetDevicePropertiesResponse.class);
+        assertSameMapping("{\"code\":null,\"message\":\"Failed\"}", SetDevicePropertiesResponse.class);
+        assertSameMapping("{\"code\":4106,\"message\":\"Update app\"}", ErrorResponse.class);
+    }
+
+    @Test
+    public void testRequestsAreWrittenCompactAndLikeReflectiveMapping() {
+        ParametersDTO parameters = new ParametersDTO();
+        parameters.operate = 1;
+        parameters.temperatureSet = 21.5;
+        parameters.fanSpeed = 3;
+        SetDevicePropertiesRequest request = new SetDevicePropertiesRequest("CS-Z25VKEW+4769389372", parameters);
+
+        String json = WireCodec.GSON.toJson(request);
+        assertFalse(json.contains("\n"));
+        assertEquals(reflective.toJsonTree(request), reflective.fromJson(json, JsonElement.class));
+
+        LoginRequestDTO login = new LoginRequestDTO();
+        login.username = "user";
+        login._csrf = "csrf";
+        assertEquals(reflective.toJsonTree(login),
+                reflective.fromJson(WireCodec.GSON.toJson(login), JsonElement.class));
+        assertEquals(reflective.toJsonTree(new GetAccClientIdDTO()),
+                reflective.fromJson(WireCodec.GSON.toJson(new GetAccClientIdDTO()), JsonElement.class));
+    }
+
+    private void assertSameMapping(String json, Class<?> type) {
+        Object expected = reflective.fromJson(json, type);
+        Object actual = WireCodec.GSON.fromJson(json, type);
+        assertEquals(reflective.toJsonTree(expected), reflective.toJsonTree(actual));
+        // And back again through the hand-written writers
+        assertEquals(reflective.toJsonTree(expected),
+                reflective.fromJson(WireCodec.GSON.toJson(actual), JsonElement.class));
+    }
+
+    private String read(String resource) throws IOException {
+        return new String(getClass().getResourceAsStream(resource).readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
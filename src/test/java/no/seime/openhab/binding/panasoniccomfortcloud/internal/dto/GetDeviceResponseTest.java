@@ -13,6 +13,7 @@
 package no.seime.openhab.binding.panasoniccomfortcloud.internal.dto;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -26,6 +27,7 @@ import no.seime.openhab.binding.panasoniccomfortcloud.internal.BindingConstants;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Device;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Group;
 import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Parameters;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.ParametersDelta;
 
 /**
  * @author Arne Seime - Initial contribution
@@ -45,12 +47,13 @@ public class GetDeviceResponseTest extends AbstractSerializationDeserializationT
 
         Parameters currentParameters = device.getCurrentParameters();
         assertTrue(currentParameters.isMasterSwitch());
-        Parameters sendRequestParameters = device.createSendRequestParameters();
-        assertTrue(sendRequestParameters.isMasterSwitch());
-
-        sendRequestParameters.setTargetTemperature(22d);
-        ParametersDTO parametersDTO = sendRequestParameters.toParametersDTO(device);
+        ParametersDelta delta = new ParametersDelta();
+        delta.setTargetTemperature(22d);
+        ParametersDTO parametersDTO = delta.toParametersDTO(currentParameters, device);
         assertEquals(1, parametersDTO.operate);
+        assertEquals(currentParameters.getMode().value, parametersDTO.operationMode);
+        assertEquals(22d, parametersDTO.temperatureSet);
+        assertNull(parametersDTO.fanSpeed);
     }
 
     @Test
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.handler;
+
+import static no.seime.openhab.binding.panasoniccomfortcloud.internal.BindingConstants.THING_TYPE_ACCOUNT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openhab.core.thing.binding.builder.BridgeBuilder;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiBridge;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.CommunicationException;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.WireHelper;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class AccountGroupsCacheTest {
+
+    private final ApiBridge apiBridge = mock(ApiBridge.class);
+    private final Bridge bridge = BridgeBuilder.create(THING_TYPE_ACCOUNT, "account").build();
+    private final PanasonicComfortCloudAccountHandler accountHandler = new PanasonicComfortCloudAccountHandler(
+            bridge, scheduler -> apiBridge);
+    private CompletableFuture<Object> response = new CompletableFuture<>();
+
+    @BeforeEach
+    public void setUp() {
+        accountHandler.setCallback(mock(ThingHandlerCallback.class));
+        doReturn(response).when(apiBridge).sendRequestAsync(any(), any());
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneRequest() throws Exception {
+        CompletableFuture<Boolean> poll = accountHandler.refreshGroups();
+        CompletableFuture<Boolean> discovery = accountHandler.refreshGroups();
+        assertSame(poll, discovery);
+        verify(apiBridge, times(1)).sendRequestAsync(any(), any());
+
+        response.complete(groups());
+        assertTrue(poll.get());
+        assertEquals(1, accountHandler.getModel().getGroups().size());
+
+        // Without a freshness window every later call fetches again
+        accountHandler.refreshGroups();
+        verify(apiBridge, times(2)).sendRequestAsync(any(), any());
+    }
+
+    @Test
+    public void testFailedRequestIsSharedAndNotCached() throws Exception {
+        CompletableFuture<Boolean> poll = accountHandler.refreshGroups();
+        CompletableFuture<Boolean> discovery = accountHandler.refreshGroups();
+
+        response.completeExceptionally(new CommunicationException("Connection refused"));
+        assertFalse(poll.get());
+        assertFalse(discovery.get());
+        verify(apiBridge, times(1)).sendRequestAsync(any(), any());
+
+        response = new CompletableFuture<>();
+        doReturn(response).when(apiBridge).sendRequestAsync(any(), any());
+        CompletableFuture<Boolean> retry = accountHandler.refreshGroups();
+        verify(apiBridge, times(2)).sendRequestAsync(any(), any());
+        response.complete(groups());
+        assertTrue(retry.get());
+    }
+
+    @Test
+    public void testResponseAfterDisposeIsDropped() throws Exception {
+        CompletableFuture<Boolean> poll = accountHandler.refreshGroups();
+        accountHandler.dispose();
+
+        response.complete(groups());
+        assertFalse(poll.get());
+        assertEquals(0, accountHandler.getModel().getGroups().size());
+
+        // The next request is not joined to the dropped one
+        accountHandler.refreshGroups();
+        verify(apiBridge, times(2)).sendRequestAsync(any(), any());
+    }
+
+    private GetGroupsResponse groups() throws IOException {
+        return new WireHelper().deSerializeFromClasspathResource("/get_groups_response.json",
+                WireCodec.GET_GROUPS_RESPONSE);
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.handler;
+
+import static no.seime.openhab.binding.panasoniccomfortcloud.internal.BindingConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openhab.core.test.storage.VolatileStorage;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.Channel;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingStatus;
+import org.openhab.core.thing.ThingStatusInfo;
+import org.openhab.core.thing.ThingUID;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openhab.core.thing.binding.builder.BridgeBuilder;
+import org.openhab.core.thing.binding.builder.ChannelBuilder;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+import org.openhab.core.thing.binding.builder.ThingStatusInfoBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.management.ThreadMXBean;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ApiBridge;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.ComfortCloudStub;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.config.AccountConfiguration;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.DevicePollEngine;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.PollCycleResult;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.poll.RequestBudget;
+
+/**
+ * Offline load test running the account and air conditioner handlers against a {@link ComfortCloudStub} serving a
+ * large synthetic account. Every cycle refreshes the group listing through the account handler, then polls all
+ * devices through the handlers' own request path. Reports cycle latency percentiles, requests per cycle, threads and
+ * heap allocation. Thread and allocation figures cover the whole JVM, the stub included.
+ * <p>
+ * Disabled by default. Run with
+ *
+ * <pre>
+ * mvn test -Dtest=AccountLoadTest -Dpanasonic.loadtest=true -Dlogback.configurationFile=logback-loadtest.xml
+ * </pre>
+ *
+ * and size the scenario with <code>panasonic.loadtest.*</code> properties, see {@link ComfortCloudStub.Scenario} and
+ * the properties read below.
+ *
+ * @author agent - Initial contribution
+ */
+@EnabledIfSystemProperty(named = "panasonic.loadtest", matches = "true")
+public class AccountLoadTest {
+    private static final List<String> CHANNELS = List.of(CHANNEL_CURRENT_INDOOR_TEMPERATURE,
+            CHANNEL_CURRENT_OUTDOOR_TEMPERATURE, CHANNEL_MASTER_SWITCH, CHANNEL_FAN_SPEED,
+            CHANNEL_AIR_SWING_AUTO_MODE, CHANNEL_OPERATION_MODE, CHANNEL_ECO_MODE, CHANNEL_AIR_SWING_VERTICAL,
+            CHANNEL_AIR_SWING_HORIZONTAL, CHANNEL_TARGET_TEMPERATURE, CHANNEL_NANOE, CHANNEL_ACTUAL_NANOE);
+
+    private final Logger logger = LoggerFactory.getLogger(AccountLoadTest.class);
+
+    @Test
+    public void testPollCycles() throws Exception {
+        ComfortCloudStub.Scenario scenario = ComfortCloudStub.Scenario.fromSystemProperties();
+        int cycles = Integer.getInteger("panasonic.loadtest.cycles", 10);
+        int warmupCycles = Integer.getInteger("panasonic.loadtest.warmupCycles", 1);
+        int parallelism = Integer.getInteger("panasonic.loadtest.parallelism", 8);
+        int maxRequestsPerMinute = Integer.getInteger("panasonic.loadtest.maxRequestsPerMinute", 1_000_000);
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(parallelism);
+        try (ComfortCloudStub stub = new ComfortCloudStub(scenario)) {
+            stub.start();
+            logger.info("Load test against {} with {} devices, {} cycles, parallelism {}", scenario,
+                    stub.getDeviceIds().size(), cycles, parallelism);
+
+            ThingHandlerCallback callback = mock(ThingHandlerCallback.class);
+            doAnswer(invocation -> {
+                Thing thing = invocation.getArgument(0);
+                thing.setStatusInfo(invocation.getArgument(1));
+                return null;
+            }).when(callback).statusUpdated(any(), any());
+
+            Bridge bridge = BridgeBuilder.create(THING_TYPE_ACCOUNT, "loadtest").build();
+            PanasonicComfortCloudAccountHandler accountHandler = new PanasonicComfortCloudAccountHandler(bridge,
+                    scheduler -> new ApiBridge(new VolatileStorage<>(), scheduler));
+            accountHandler.setCallback(callback);
+            bridge.setHandler(accountHandler);
+            when(callback.getBridge(bridge.getUID())).thenReturn(bridge);
+            AccountConfiguration config = new AccountConfiguration();
+            config.username = "loadtest@example.com";
+            config.password = "secret";
+            config.appVersion = "1.20.0";
+            config.accBaseUrl = stub.getBaseUrl();
+            config.authBaseUrl = stub.getBaseUrl();
+            accountHandler.getApiBridge().init(config);
+            // Cycles run back to back, every cycle must fetch every device
+            accountHandler.getDeviceStatusCache().setTtl(Duration.ZERO);
+
+            List<PanasonicComfortCloudAirconditionHandler> handlers = new ArrayList<>();
+            for (String deviceId : stub.getDeviceIds()) {
+                handlers.add(createDeviceHandler(bridge, deviceId, callback));
+            }
+
+            DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(maxRequestsPerMinute),
+                    parallelism, Duration.ZERO, Duration.ZERO, r -> {
+                    });
+
+            List<Long> cycleMillis = new ArrayList<>();
+            threads.resetPeakThreadCount();
+            long totalRequests = 0;
+            long totalAllocated = 0;
+            for (int cycle = 0; cycle < warmupCycles + cycles; cycle++) {
+                stub.advance();
+                long allocatedBefore = allocatedBytes(threads);
+                long started = System.nanoTime();
+
+                accountHandler.doPoll(false).get();
+                PollCycleResult result = null;
+                if (bridge.getStatus() == ThingStatus.ONLINE) {
+                    result = engine.runCycle(handlers).get();
+                }
+
+                long millis = (System.nanoTime() - started) / 1_000_000;
+                long allocated = allocatedBytes(threads) - allocatedBefore;
+                Map<String, Long> requests = stub.drainRequestCounts();
+                long requestCount = requests.entrySet().stream()
+                        .filter(e -> !ComfortCloudStub.REQUESTS_FAILED.equals(e.getKey()))
+                        .mapToLong(Map.Entry::getValue).sum();
+                boolean warmup = cycle < warmupCycles;
+                logger.info("{} cycle {}: {} ms, requests {}, polled {}, failed {}, allocated {} KiB, threads {}",
+                        warmup ? "Warmup" : "Measured", cycle, millis, requests,
+                        result == null ? 0 : result.getPolled(), result == null ? "-" : result.getFailed(),
+                        allocated / 1024, threads.getThreadCount());
+
+                if (result != null && scenario.errorRate == 0 && scenario.versionErrorRate == 0) {
+                    assertEquals(handlers.size(), result.getPolled());
+                    assertEquals(0, result.getFailed());
+                }
+                if (!warmup) {
+                    cycleMillis.add(millis);
+                    totalRequests += requestCount;
+                    totalAllocated += allocated;
+                }
+            }
+
+            Collections.sort(cycleMillis);
+            logger.info(
+                    "Poll cycle latency over {} cycles: p50 {} ms, p90 {} ms, p99 {} ms, max {} ms. "
+                            + "Requests per cycle {}, allocated per cycle {} KiB, peak threads {}",
+                    cycles, percentile(cycleMillis, 50), percentile(cycleMillis, 90), percentile(cycleMillis, 99),
+                    cycleMillis.get(cycleMillis.size() - 1), totalRequests / cycles, totalAllocated / cycles / 1024,
+                    threads.getPeakThreadCount());
+
+            accountHandler.dispose();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PanasonicComfortCloudAirconditionHandler createDeviceHandler(Bridge bridge, String deviceId,
+            ThingHandlerCallback callback) {
+        ThingUID thingUID = new ThingUID(THING_TYPE_AIRCONDITION, bridge.getUID(), deviceId);
+        List<Channel> channels = new ArrayList<>();
+        for (String channelId : CHANNELS) {
+            channels.add(ChannelBuilder.create(new ChannelUID(thingUID, channelId)).build());
+        }
+        Thing thing = ThingBuilder.create(THING_TYPE_AIRCONDITION, thingUID).withBridge(bridge.getUID())
+                .withChannels(channels).build();
+
+        PanasonicComfortCloudAirconditionHandler handler = new PanasonicComfortCloudAirconditionHandler(thing);
+        handler.setCallback(callback);
+        thing.setHandler(handler);
+        handler.initialize(deviceId);
+        // Normally set by the first load after initialize(), make the device eligible for polling right away
+        ThingStatusInfo online = ThingStatusInfoBuilder.create(ThingStatus.ONLINE).build();
+        thing.setStatusInfo(online);
+        return handler;
+    }
+
+    /**
+     * @return bytes allocated so far by all live threads. Threads terminating between two calls are not accounted for.
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.SetDevicePropertiesResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.WireHelper;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Device;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.FanSpeed;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Group;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.OperationMode;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.Parameters;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.model.ParametersDelta;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class DeviceCommandQueueTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private Device device;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        DeviceDTO dto = new WireHelper().deSerializeFromClasspathResource("/get_device_response_on.json",
+                DeviceDTO.class);
+        device = new Device(new Group());
+        device.mergeFromDeviceDetails(dto);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testCommandsWithinWindowAreMerged() throws Exception {
+        List<ParametersDelta> sent = new ArrayList<>();
+        DeviceCommandQueue queue = new DeviceCommandQueue(scheduler, (d, p) -> {
+            sent.add(p);
+            return CompletableFuture.completedFuture(response(0));
+        }, 200);
+
+        CompletableFuture<Void> mode = queue.submit(device, p -> p.setMode(OperationMode.HEAT));
+        CompletableFuture<Void> temperature = queue.submit(device, p -> p.setTargetTemperature(23d));
+        CompletableFuture<Void> fanSpeed = queue.submit(device, p -> p.setFanSpeed(FanSpeed.HIGH));
+
+        CompletableFuture.allOf(mode, temperature, fanSpeed).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, sent.size());
+        ParametersDelta merged = sent.get(0);
+        assertEquals(OperationMode.HEAT, merged.getMode());
+        assertEquals(23d, merged.getTargetTemperature());
+        assertEquals(FanSpeed.HIGH, merged.getFanSpeed());
+        assertNull(merged.getMasterSwitch());
+
+        Parameters current = device.getCurrentParameters();
+        assertEquals(OperationMode.HEAT, current.getMode());
+        assertEquals(23d, current.getTargetTemperature());
+        assertEquals(FanSpeed.HIGH, current.getFanSpeed());
+        assertTrue(current.isMasterSwitch());
+    }
+
+    @Test
+    public void testModelIsOnlyUpdatedWhenServerAcceptsWrite() throws Exception {
+        Parameters before = device.getCurrentParameters();
+        CompletableFuture<SetDevicePropertiesResponse> response = new CompletableFuture<>();
+        DeviceCommandQueue queue = new DeviceCommandQueue(scheduler, (d, p) -> response, 0);
+
+        CompletableFuture<Void> temperature = queue.submit(device, p -> p.setTargetTemperature(25d));
+        Thread.sleep(100);
+        assertSame(before, device.getCurrentParameters());
+
+        response.complete(response(0));
+        temperature.get(5, TimeUnit.SECONDS);
+        assertEquals(25d, device.getCurrentParameters().getTargetTemperature());
+        assertEquals(before.getMode(), device.getCurrentParameters().getMode());
+    }
+
+    @Test
+    public void testAllCommandsFailWhenMergedWriteIsRejected() {
+        Parameters before = device.getCurrentParameters();
+        DeviceCommandQueue queue = new DeviceCommandQueue(scheduler,
+                (d, p) -> CompletableFuture.completedFuture(response(1)), 50);
+
+        CompletableFuture<Void> mode = queue.submit(device, p -> p.setMode(OperationMode.COOL));
+        CompletableFuture<Void> fanSpeed = queue.submit(device, p -> p.setFanSpeed(FanSpeed.LOW));
+
+        assertThrows(ExecutionException.class, () -> mode.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> fanSpeed.get(5, TimeUnit.SECONDS));
+        assertSame(before, device.getCurrentParameters());
+    }
+
+    @Test
+    public void testTemperatureIsCheckedAgainstModeQueuedBeforeIt() throws Exception {
+        ParametersDelta fan = new ParametersDelta();
+        fan.setMode(OperationMode.FAN);
+        device.applyDelta(fan);
+        List<ParametersDelta> sent = new ArrayList<>();
+        DeviceCommandQueue queue = new DeviceCommandQueue(scheduler, (d, p) -> {
+            sent.add(p);
+            return CompletableFuture.completedFuture(response(0));
+        }, 200);
+
+        CompletableFuture<Void> mode = queue.submit(device, p -> p.setMode(OperationMode.COOL));
+        CompletableFuture<Void> temperature = queue.submit(device,
+                p -> PanasonicComfortCloudAirconditionHandler.setTargetTemperature(p, device, 22));
+
+        CompletableFuture.allOf(mode, temperature).get(5, TimeUnit.SECONDS);
+        assertEquals(1, sent.size());
+        assertEquals(OperationMode.COOL, sent.get(0).getMode());
+        assertEquals(22d, sent.get(0).getTargetTemperature());
+    }
+
+    @Test
+    public void testUnsupportedChangeIsRejectedAlone() throws Exception {
+        ParametersDelta fan = new ParametersDelta();
+        fan.setMode(OperationMode.FAN);
+        device.applyDelta(fan);
+        List<ParametersDelta> sent = new ArrayList<>();
+        DeviceCommandQueue queue = new DeviceCommandQueue(scheduler, (d, p) -> {
+            sent.add(p);
+            return CompletableFuture.completedFuture(response(0));
+        }, 200);
+
+        CompletableFuture<Void> temperature = queue.submit(device,
+                p -> PanasonicComfortCloudAirconditionHandler.setTargetTemperature(p, device, 22));
+        CompletableFuture<Void> fanSpeed = queue.submit(device, p -> p.setFanSpeed(FanSpeed.LOW));
+
+        fanSpeed.get(5, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, () -> temperature.get(5, TimeUnit.SECONDS));
+        assertEquals(1, sent.size());
+        assertNull(sent.get(0).getTargetTemperature());
+        assertEquals(FanSpeed.LOW, device.getCurrentParameters().getFanSpeed());
+    }
+
+    @Test
+    public void testCloseCancelsPendingChanges() throws Exception {
+        List<ParametersDelta> sent = new ArrayList<>();
+        DeviceCommandQueue queue = new DeviceCommandQueue(scheduler, (d, p) -> {
+            sent.add(p);
+            return CompletableFuture.completedFuture(response(0));
+        }, 100);
+
+        CompletableFuture<Void> mode = queue.submit(device, p -> p.setMode(OperationMode.COOL));
+        queue.close();
+        CompletableFuture<Void> afterClose = queue.submit(device, p -> p.setFanSpeed(FanSpeed.LOW));
+
+        Thread.sleep(300);
+        assertTrue(mode.isCancelled());
+        assertTrue(afterClose.isCancelled());
+        assertTrue(sent.isEmpty());
+    }
+
+    private static SetDevicePropertiesResponse response(int code) {
+        SetDevicePropertiesResponse rsp = new SetDevicePropertiesResponse();
+        rsp.code = code;
+        return rsp;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GroupDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.WireHelper;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class GroupModelTest {
+
+    private final WireHelper wireHelper = new WireHelper();
+
+    @Test
+    public void testMergeIndexesGroupsAndDevices() throws IOException {
+        GroupModel model = new GroupModel(0).mergeFrom(readGroups().groupList);
+
+        assertEquals(1, model.getGroups().size());
+        Group group = model.findGroupById("235435").orElseThrow();
+        assertEquals("Hjemme", group.getName());
+        assertEquals(3, group.getDevices().size());
+
+        Device device = model.findDeviceByDeviceId("CS-TZ25WKEW+000000001").orElseThrow();
+        assertEquals("Marie", device.getName());
+        assertSame(group, device.getGroup());
+        assertTrue(model.findDeviceByDeviceId("unknown").isEmpty());
+    }
+
+    @Test
+    public void testMergeCreatesNewSnapshot() throws IOException {
+        GroupModel empty = new GroupModel(0);
+        GroupModel first = empty.mergeFrom(readGroups().groupList);
+
+        assertTrue(empty.getGroups().isEmpty());
+        assertTrue(empty.findDeviceByDeviceId("CS-TZ25WKEW+000000000").isEmpty());
+
+        GetGroupsResponse response = readGroups();
+        response.groupList[0].groupName = "Renamed";
+        response.groupList[0].devices[0].deviceName = "Renamed";
+        GroupModel second = first.mergeFrom(response.groupList);
+
+        assertEquals("Hjemme", first.getGroups().get(0).getName());
+        assertEquals("Renamed", second.getGroups().get(0).getName());
+        assertEquals(3, second.getGroups().get(0).getDevices().size());
+
+        // Device state carries over between snapshots
+        Device device = first.findDeviceByDeviceId("CS-TZ25WKEW+000000000").orElseThrow();
+        assertSame(device, second.findDeviceByDeviceId("CS-TZ25WKEW+000000000").orElseThrow());
+        assertEquals("Renamed", device.getName());
+        assertSame(second.getGroups().get(0), device.getGroup());
+    }
+
+    @Test
+    public void testUnlistedGroupsAndDevicesAreKept() throws IOException {
+        GroupModel first = new GroupModel(0).mergeFrom(readGroups().groupList);
+
+        GroupDTO other = new GroupDTO();
+        other.groupId = "1";
+        other.groupName = "Other";
+        other.devices = new DeviceDTO[] { readGroups().groupList[0].devices[2] };
+        GroupModel second = first.mergeFrom(new GroupDTO[] { other });
+
+        assertEquals(2, second.getGroups().size());
+        Device moved = second.findDeviceByDeviceId(other.devices[0].deviceGuid).orElseThrow();
+        assertEquals("Other", moved.getGroup().getName());
+        assertEquals(2, second.findGroupById("235435").orElseThrow().getDevices().size());
+        assertEquals(3, second.getGroups().stream().mapToInt(g -> g.getDevices().size()).sum());
+    }
+
+    private GetGroupsResponse readGroups() throws IOException {
+        return wireHelper.deSerializeFromClasspathResource("/get_groups_response.json", WireCodec.GET_GROUPS_RESPONSE);
+    }
+}
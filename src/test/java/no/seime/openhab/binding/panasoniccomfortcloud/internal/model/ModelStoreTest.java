@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.core.test.storage.VolatileStorage;
+
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.WireCodec;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.DeviceDTO;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.GetGroupsResponse;
+import no.seime.openhab.binding.panasoniccomfortcloud.internal.dto.WireHelper;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class ModelStoreTest {
+
+    private final WireHelper wireHelper = new WireHelper();
+    private final VolatileStorage<String> storage = new VolatileStorage<>();
+
+    @Test
+    public void testRestoresGroupsDetailsAndAcceptedChanges() throws IOException {
+        GetGroupsResponse groups = wireHelper.deSerializeFromClasspathResource("/get_groups_response.json",
+                WireCodec.GET_GROUPS_RESPONSE);
+        DeviceDTO details = wireHelper.deSerializeFromClasspathResource("/get_device_response_on.json",
+                WireCodec.DEVICE);
+        GroupModel model = new GroupModel(0).mergeFrom(groups.groupList);
+        Device device = model.findDeviceByDeviceId("CS-TZ25WKEW+000000000").orElseThrow();
+        device.mergeFromDeviceDetails(details);
+        ParametersDelta delta = new ParametersDelta();
+        delta.setTargetTemperature(25d);
+        device.applyDelta(delta);
+
+        new ModelStore(storage, "account").save(model);
+        GroupModel restored = new ModelStore(storage, "account").load();
+
+        assertEquals(1, restored.getGroups().size());
+        assertEquals("Hjemme", restored.getGroups().get(0).getName());
+        assertEquals(3, restored.getGroups().get(0).getDevices().size());
+
+        Device restoredDevice = restored.findDeviceByDeviceId("CS-TZ25WKEW+000000000").orElseThrow();
+        assertTrue(restoredDevice.isInitialized());
+        assertEquals(device.getName(), restoredDevice.getName());
+        assertEquals(device.getType(), restoredDevice.getType());
+        assertEquals(device.getLastUpdated(), restoredDevice.getLastUpdated());
+        assertEquals(25d, restoredDevice.getCurrentParameters().getTargetTemperature());
+        assertEquals(device.getCurrentParameters().getInsideTemperature(),
+                restoredDevice.getCurrentParameters().getInsideTemperature());
+        assertEquals(device.getCurrentParameters().getMode(), restoredDevice.getCurrentParameters().getMode());
+        assertEquals(device.getFeatureSet().getSupportedOperationModes(),
+                restoredDevice.getFeatureSet().getSupportedOperationModes());
+        // Restored state is always merged in full by the first poll
+        assertEquals(0, restoredDevice.getDetailsFingerprint());
+
+        assertFalse(restored.findDeviceByDeviceId("CS-TZ25WKEW+000000001").orElseThrow().isInitialized());
+        assertTrue(new ModelStore(storage, "other").load().getGroups().isEmpty());
+    }
+
+    @Test
+    public void testUnreadableModelIsDiscarded() {
+        storage.put("model.account", "{\"version\":1,\"groups\":{}");
+        assertTrue(new ModelStore(storage, "account").load().getGroups().isEmpty());
+        assertNull(storage.get("model.account"));
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class AdaptivePollIntervalTest {
+
+    private final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    public void testIntervalStretchesWhileUnchanged() {
+        AdaptivePollInterval interval = new AdaptivePollInterval(Duration.ofSeconds(120), Duration.ofSeconds(600));
+        assertTrue(interval.isDue(now));
+
+        for (int i = 0; i < 10; i++) {
+            interval.recordPoll(now, PollOutcome.UNCHANGED);
+        }
+        assertEquals(Duration.ofSeconds(600), interval.getInterval());
+        assertFalse(interval.isDue(now.plusSeconds(599)));
+        assertTrue(interval.isDue(now.plusSeconds(600)));
+
+        interval.recordPoll(now, PollOutcome.UPDATED);
+        assertEquals(Duration.ofSeconds(300), interval.getInterval());
+    }
+
+    @Test
+    public void testCommandSnapsBackToFastPolling() {
+        AdaptivePollInterval interval = new AdaptivePollInterval(Duration.ofSeconds(120), Duration.ofSeconds(600));
+        interval.recordPoll(now, PollOutcome.UNCHANGED);
+        interval.recordPoll(now, PollOutcome.UNCHANGED);
+        assertFalse(interval.isDue(now.plusSeconds(1)));
+
+        interval.recordCommand(now.plusSeconds(1));
+        assertTrue(interval.isDue(now.plusSeconds(1)));
+        assertEquals(Duration.ofSeconds(120), interval.getInterval());
+    }
+
+    @Test
+    public void testFailureRetriesAtFastestRate() {
+        AdaptivePollInterval interval = new AdaptivePollInterval(Duration.ofSeconds(120), Duration.ofSeconds(600));
+        interval.recordPoll(now, PollOutcome.UNCHANGED);
+        interval.recordPoll(now, PollOutcome.FAILED);
+        assertEquals(Duration.ofSeconds(180), interval.getInterval());
+        assertTrue(interval.isDue(now.plusSeconds(120)));
+    }
+}
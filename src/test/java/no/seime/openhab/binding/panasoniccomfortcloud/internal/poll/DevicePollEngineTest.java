@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class DevicePollEngineTest {
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(8);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCycleIsBoundedByParallelism() throws InterruptedException, ExecutionException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicReference<PollCycleResult> published = new AtomicReference<>();
+
+        List<PollTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            targets.add(new TestTarget("device" + i, i != 0, () -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return PollOutcome.UPDATED;
+            }));
+        }
+
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(600), 3, Duration.ZERO,
+                Duration.ZERO, published::set);
+        PollCycleResult result = engine.runCycle(targets).get();
+
+        assertTrue(maxInFlight.get() <= 3);
+        assertEquals(10, result.getCandidates());
+        assertEquals(9, result.getPolled());
+        assertEquals(1, result.getSkipped());
+        assertEquals(0, result.getFailed());
+        assertEquals(result, published.get());
+    }
+
+    @Test
+    public void testFailuresAreCounted() throws InterruptedException, ExecutionException {
+        List<PollTarget> targets = List.of(new TestTarget("a", true, () -> PollOutcome.FAILED),
+                new TestTarget("b", true, () -> {
+                    throw new IllegalStateException("boom");
+                }), new TestTarget("c", true, () -> PollOutcome.UPDATED));
+
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(600), 2, Duration.ZERO,
+                Duration.ZERO, r -> {
+                });
+        PollCycleResult result = engine.runCycle(targets).get();
+
+        assertEquals(3, result.getPolled());
+        assertEquals(2, result.getFailed());
+    }
+
+    @Test
+    public void testUnchangedDevicesAreSkippedUntilCommandSent() throws InterruptedException, ExecutionException {
+        AtomicInteger polls = new AtomicInteger();
+        List<PollTarget> targets = List.of(new TestTarget("a", true, () -> {
+            polls.incrementAndGet();
+            return PollOutcome.UNCHANGED;
+        }));
+
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(600), 2, Duration.ofMinutes(2),
+                Duration.ofMinutes(15), r -> {
+                });
+        engine.runCycle(targets).get();
+        PollCycleResult second = engine.runCycle(targets).get();
+        assertEquals(1, polls.get());
+        assertEquals(1, second.getSkipped());
+
+        engine.commandSent("a");
+        engine.runCycle(targets).get();
+        assertEquals(2, polls.get());
+    }
+
+    @Test
+    public void testBusyDeviceIsPolledEveryCycle() throws InterruptedException, ExecutionException {
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-06-01T12:00:00Z"));
+        AtomicInteger polls = new AtomicInteger();
+        List<PollTarget> targets = List.of(new TestTarget("a", true, () -> {
+            polls.incrementAndGet();
+            // The poll takes time, the next cycle still starts one interval after this one started
+            now.set(now.get().plusSeconds(5));
+            return PollOutcome.UPDATED;
+        }));
+
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(600), 2, Duration.ofMinutes(2),
+                Duration.ofMinutes(15), r -> {
+                }, now::get);
+        Instant firstCycle = now.get();
+        engine.runCycle(targets).get();
+        now.set(firstCycle.plus(Duration.ofMinutes(2)));
+        PollCycleResult second = engine.runCycle(targets).get();
+
+        assertEquals(2, polls.get());
+        assertEquals(0, second.getSkipped());
+    }
+
+    @Test
+    public void testCachedOutcomeDoesNotAdaptInterval() throws InterruptedException, ExecutionException {
+        AtomicInteger polls = new AtomicInteger();
+        List<PollTarget> targets = List.of(new TestTarget("a", true, () -> {
+            polls.incrementAndGet();
+            return PollOutcome.CACHED;
+        }));
+
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(600), 2, Duration.ofMinutes(2),
+                Duration.ofMinutes(15), r -> {
+                });
+        engine.runCycle(targets).get();
+        engine.runCycle(targets).get();
+
+        // Nothing was observed, so the device stays due and its interval unchanged
+        assertEquals(2, polls.get());
+        assertEquals(Duration.ofMinutes(2), engine.getInterval("a").getInterval());
+    }
+
+    @Test
+    public void testCachedDevicesDoNotSpendPermits() throws Exception {
+        List<PollTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            targets.add(new ImmediateTarget("device" + i) {
+                @Override
+                public CompletableFuture<PollOutcome> poll(Supplier<CompletableFuture<Long>> permit) {
+                    return CompletableFuture.completedFuture(PollOutcome.CACHED);
+                }
+            });
+        }
+
+        // A single permit per minute, so the cycle would wait if the engine took one per device
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(1), 1, Duration.ZERO,
+                Duration.ZERO, r -> {
+                });
+        PollCycleResult result = engine.runCycle(targets).get(5, TimeUnit.SECONDS);
+
+        assertEquals(0L, result.getBudgetWaitMillis());
+    }
+
+    @Test
+    public void testSynchronousPollsDoNotGrowTheStack() throws InterruptedException, ExecutionException {
+        List<PollTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            targets.add(new ImmediateTarget("device" + i));
+        }
+
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(10000), 1, Duration.ZERO,
+                Duration.ZERO, r -> {
+                });
+        PollCycleResult result = engine.runCycle(targets).get();
+
+        assertEquals(5000, result.getPolled());
+        assertEquals(0, result.getFailed());
+    }
+
+    @Test
+    public void testStoppedEngineDropsPendingTargets() throws InterruptedException, ExecutionException {
+        AtomicInteger polls = new AtomicInteger();
+        AtomicReference<PollCycleResult> published = new AtomicReference<>();
+        AtomicReference<DevicePollEngine> engine = new AtomicReference<>();
+        List<PollTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            targets.add(new TestTarget("device" + i, true, () -> {
+                polls.incrementAndGet();
+                // Disposed while the first poll is in flight
+                engine.get().stop();
+                return PollOutcome.UPDATED;
+            }));
+        }
+
+        engine.set(new DevicePollEngine(executor, new RequestBudget(600), 1, Duration.ZERO, Duration.ZERO,
+                published::set));
+        engine.get().runCycle(targets).get();
+
+        assertEquals(1, polls.get());
+        assertNull(published.get());
+    }
+
+    @Test
+    public void testCycleCompletesWhenListenerFails() throws Exception {
+        DevicePollEngine engine = new DevicePollEngine(executor, new RequestBudget(600), 1, Duration.ZERO,
+                Duration.ZERO, r -> {
+                    throw new IllegalStateException("boom");
+                });
+        PollCycleResult result = engine.runCycle(List.of(new ImmediateTarget("a"))).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, result.getPolled());
+    }
+
+    @Test
+    public void testCycleCompletesWhenSchedulerRejectsContinuation() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        CompletableFuture<PollOutcome> response = new CompletableFuture<>();
+        PollTarget held = new ImmediateTarget("a") {
+            @Override
+            public CompletableFuture<PollOutcome> poll(Supplier<CompletableFuture<Long>> permit) {
+                return permit.get().thenCompose(waited -> response);
+            }
+        };
+        DevicePollEngine engine = new DevicePollEngine(scheduler, new RequestBudget(600), 1, Duration.ZERO,
+                Duration.ZERO, r -> {
+                });
+        CompletableFuture<PollCycleResult> cycle = engine.runCycle(List.of(held, new ImmediateTarget("b")));
+
+        scheduler.shutdownNow();
+        response.complete(PollOutcome.UPDATED);
+
+        PollCycleResult result = cycle.get(5, TimeUnit.SECONDS);
+        assertEquals(1, result.getFailed());
+    }
+
+    private static class ImmediateTarget implements PollTarget {
+        private final String deviceId;
+
+        ImmediateTarget(String deviceId) {
+            this.deviceId = deviceId;
+        }
+
+        @Override
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        @Override
+        public boolean isPollable() {
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<PollOutcome> poll(Supplier<CompletableFuture<Long>> permit) {
+            return permit.get().thenApply(waited -> PollOutcome.UNCHANGED);
+        }
+    }
+
+    private class TestTarget implements PollTarget {
+        private final String deviceId;
+        private final boolean pollable;
+        private final Supplier<PollOutcome> action;
+
+        TestTarget(String deviceId, boolean pollable, Supplier<PollOutcome> action) {
+            this.deviceId = deviceId;
+            this.pollable = pollable;
+            this.action = action;
+        }
+
+        @Override
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        @Override
+        public boolean isPollable() {
+            return pollable;
+        }
+
+        @Override
+        public CompletableFuture<PollOutcome> poll(Supplier<CompletableFuture<Long>> permit) {
+            return permit.get().thenCompose(waited -> CompletableFuture.supplyAsync(action, executor));
+        }
+    }
+}
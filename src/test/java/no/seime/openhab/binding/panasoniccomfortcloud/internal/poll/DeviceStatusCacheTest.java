@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2023 Contributors to the Seime Openhab Addons project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package no.seime.openhab.binding.panasoniccomfortcloud.internal.poll;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+public class DeviceStatusCacheTest {
+
+    private Instant now = Instant.parse("2023-06-01T12:00:00Z");
+    private final DeviceStatusCache cache = new DeviceStatusCache(Duration.ofSeconds(15), () -> now);
+    private final List<CompletableFuture<PollOutcome>> fetches = new ArrayList<>();
+
+    private CompletableFuture<PollOutcome> fetch(String deviceId) {
+        return cache.fetch(deviceId, () -> {
+            CompletableFuture<PollOutcome> fetch = new CompletableFuture<>();
+            fetches.add(fetch);
+            return fetch;
+        });
+    }
+
+    @Test
+    public void testConcurrentFetchesAreMerged() throws Exception {
+        CompletableFuture<PollOutcome> first = fetch("device");
+        CompletableFuture<PollOutcome> second = fetch("device");
+        fetch("other");
+        assertEquals(2, fetches.size());
+        assertSame(first, second);
+
+        fetches.get(0).complete(PollOutcome.UPDATED);
+        assertEquals(PollOutcome.UPDATED, second.get());
+    }
+
+    @Test
+    public void testSuccessfulFetchIsReusedWithinTtl() throws Exception {
+        fetch("device");
+        fetches.get(0).complete(PollOutcome.UNCHANGED);
+
+        now = now.plusSeconds(14);
+        assertEquals(PollOutcome.CACHED, fetch("device").get());
+        assertEquals(1, fetches.size());
+
+        now = now.plusSeconds(1);
+        assertFalse(fetch("device").isDone());
+        assertEquals(2, fetches.size());
+    }
+
+    @Test
+    public void testFailedFetchIsNotReused() {
+        fetch("device");
+        fetches.get(0).complete(PollOutcome.FAILED);
+        fetch("device");
+        fetches.get(1).completeExceptionally(new IllegalStateException("Not logged in"));
+        fetch("device");
+        assertEquals(3, fetches.size());
+    }
+
+    @Test
+    public void testInvalidatedFetchIsNotReused() throws Exception {
+        CompletableFuture<PollOutcome> beforeCommand = fetch("device");
+        cache.invalidate("device");
+        CompletableFuture<PollOutcome> afterCommand = fetch("device");
+        assertEquals(2, fetches.size());
+
+        // The fetch sent before the command completes for its callers, but does not replace the later one
+        fetches.get(0).complete(PollOutcome.UNCHANGED);
+        assertEquals(PollOutcome.UNCHANGED, beforeCommand.get());
+        assertSame(afterCommand, fetch("device"));
+
+        fetches.get(1).complete(PollOutcome.UPDATED);
+        cache.invalidate("device");
+        fetch("device");
+        assertEquals(3, fetches.size());
+    }
+}